@@ -22,8 +22,15 @@ public class MessageConstant {
     public static final String DISH_ON_SALE = "起售中的菜品不能删除";
     public static final String SETMEAL_ON_SALE = "起售中的套餐不能删除";
     public static final String DISH_BE_RELATED_BY_SETMEAL = "当前菜品关联了套餐,不能删除";
+    public static final String SHOPPING_CART_ITEM_NOT_FOUND = "商品不存在";
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
+    public static final String ORDER_CURSOR_INVALID = "分页游标无效";
+    public static final String EXPORT_JOB_BUSY = "导出任务过多，请稍后再试";
+    public static final String EXPORT_JOB_NOT_FOUND = "导出任务不存在";
+    public static final String EXPORT_JOB_NOT_FINISHED = "导出任务尚未完成";
+    public static final String EXPORT_RANGE_INVALID = "开始日期不能晚于结束日期";
+    public static final String EXPORT_RANGE_TOO_LONG = "导出的日期范围过长";
 
     public static final String OLDPASSWORD_ERROR = "原密码不正确";
     public static final String UPDATE_SUCCESS ="密码修改成功";
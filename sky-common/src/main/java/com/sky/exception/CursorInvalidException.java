@@ -0,0 +1,12 @@
+package com.sky.exception;
+
+/**
+ * 分页游标无效，属于请求参数错误，返回400
+ */
+public class CursorInvalidException extends BaseException {
+
+    public CursorInvalidException(String msg) {
+        super(msg);
+    }
+
+}
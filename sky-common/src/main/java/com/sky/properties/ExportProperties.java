@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.export")
+@Data
+public class ExportProperties {
+
+    private String dir = System.getProperty("java.io.tmpdir") + "/sky-export"; //导出文件存放目录
+    private int poolSize = 2; //同时执行的导出任务数
+    private int queueCapacity = 20; //排队等待的导出任务数
+    private int retentionHours = 24; //导出文件保留时长
+    private int maxRangeDays = 366; //单次导出最多包含的天数
+
+}
@@ -0,0 +1,41 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http-client")
+@Data
+public class HttpClientProperties {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+    /**
+     * 每个目标主机的最大连接数
+     */
+    private int maxPerRoute = 50;
+    /**
+     * 建立连接超时时间(毫秒)
+     */
+    private int connectTimeout = 2000;
+    /**
+     * 读取数据超时时间(毫秒)
+     */
+    private int socketTimeout = 5000;
+    /**
+     * 从连接池获取连接的超时时间(毫秒)
+     */
+    private int connectionRequestTimeout = 1000;
+    /**
+     * 服务端没有返回Keep-Alive时，空闲连接的保持时间(毫秒)
+     */
+    private long keepAlive = 30000;
+    /**
+     * 异步请求的线程数
+     */
+    private int asyncPoolSize = 8;
+
+}
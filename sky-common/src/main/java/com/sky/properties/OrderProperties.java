@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order")
+@Data
+public class OrderProperties {
+
+    /**
+     * 订单号生成器的节点id，取值0-1023，多实例部署时每个实例必须不同
+     * 小于0时从redis租用一个未被其他实例使用的节点id
+     */
+    private int nodeId = -1;
+
+}
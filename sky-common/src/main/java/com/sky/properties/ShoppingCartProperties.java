@@ -0,0 +1,21 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.shopping-cart")
+@Data
+public class ShoppingCartProperties {
+
+    /**
+     * 购物车存储方式：mysql 或 redis
+     */
+    private String store = "mysql";
+    /**
+     * redis存储时购物车的过期时间(天)，每次修改后重新计算
+     */
+    private long ttlDays = 7;
+
+}
@@ -0,0 +1,29 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache")
+@Data
+public class TwoLevelCacheProperties {
+
+    /**
+     * 每个缓存的本地缓存最大条数
+     */
+    private long localMaximumSize = 1000;
+    /**
+     * 本地缓存写入后的过期时间(秒)，作为失效通知丢失时的兜底
+     */
+    private long localExpireSeconds = 300;
+    /**
+     * redis缓存的过期时间(秒)，缓存清空后旧版本的数据依靠过期删除；为0时不过期，旧版本的数据需要手动清理
+     */
+    private long redisTtlSeconds = 3600;
+    /**
+     * 缓存失效通知的redis频道
+     */
+    private String invalidationChannel = "cache_invalidation";
+
+}
@@ -0,0 +1,34 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.websocket")
+@Data
+public class WebSocketRelayProperties {
+
+    /**
+     * 节点间转发WebSocket消息的redis频道
+     */
+    private String relayChannel = "websocket_relay";
+    /**
+     * 每批最多合并的消息数
+     */
+    private int batchMaxSize = 100;
+    /**
+     * 合并发送的间隔(毫秒)
+     */
+    private long batchIntervalMs = 20;
+    /**
+     * 消息去重记录的保留时间(秒)
+     */
+    private long dedupSeconds = 60;
+    /**
+     * 是否要求连接时携带jwt令牌(参数token)
+     * 关闭时未携带令牌的连接按旧版管理端处理，只能订阅管理端主题，管理端页面改为携带令牌后再开启
+     */
+    private boolean requireToken = false;
+
+}
@@ -0,0 +1,26 @@
+package com.sky.result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 封装游标分页查询结果
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResult implements Serializable {
+
+    private List records; //当前页数据集合
+
+    private String nextCursor; //下一页的游标，没有下一页时为null
+
+    private boolean hasMore; //是否还有下一页
+
+    private Long total; //近似总记录数，只在第一页且未跳过统计时返回，最多统计到上限
+
+}
@@ -1,6 +1,8 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -8,24 +10,114 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的HttpClient，连接在请求结束后归还连接池复用，避免每次请求都重新建立TCP和TLS连接
  */
+@Slf4j
 public class HttpClientUtil {
 
-    static final  int TIMEOUT_MSEC = 5 * 1000;
+    private static volatile PoolingHttpClientConnectionManager connectionManager;
+    private static volatile CloseableHttpClient httpClient;
+    private static volatile RequestConfig requestConfig;
+    private static volatile ExecutorService asyncExecutor;
+
+    static {
+        //未通过init配置时使用默认参数
+        init(new HttpClientProperties());
+    }
+
+    /**
+     * 按配置重新创建连接池和HttpClient，旧的连接池会被关闭
+     * @param properties
+     */
+    public static synchronized void init(HttpClientProperties properties) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(properties.getMaxTotal());
+        manager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        //空闲超过2秒的连接在使用前检查是否可用
+        manager.setValidateAfterInactivity(2000);
+
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
+                .setSocketTimeout(properties.getSocketTimeout())
+                .build();
+
+        //优先使用服务端返回的Keep-Alive时间
+        long keepAlive = properties.getKeepAlive();
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : keepAlive;
+        };
+
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(config)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+                .build();
+
+        AtomicInteger index = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(
+                properties.getAsyncPoolSize(), properties.getAsyncPoolSize(),
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000),
+                r -> {
+                    Thread thread = new Thread(r, "http-client-async-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        CloseableHttpClient oldClient = httpClient;
+        ExecutorService oldExecutor = asyncExecutor;
+        connectionManager = manager;
+        requestConfig = config;
+        httpClient = client;
+        asyncExecutor = executor;
+        close(oldClient, oldExecutor);
+        log.info("Http连接池初始化完成：{}", properties);
+    }
+
+    /**
+     * 关闭连接池和异步线程池
+     */
+    public static synchronized void shutdown() {
+        close(httpClient, asyncExecutor);
+    }
+
+    /**
+     * 连接池状态：leased 使用中，available 空闲，pending 等待连接的请求，max 最大连接数
+     * @return
+     */
+    public static PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
 
     /**
      * 发送GET方式请求
@@ -34,11 +126,7 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-
         String result = "";
-        CloseableHttpResponse response = null;
 
         try{
             URIBuilder builder = new URIBuilder(url);
@@ -52,22 +140,17 @@ public class HttpClientUtil {
             //创建GET请求
             HttpGet httpGet = new HttpGet(uri);
 
-            //发送请求
-            response = httpClient.execute(httpGet);
-
-            //判断响应状态
-            if(response.getStatusLine().getStatusCode() == 200){
-                result = EntityUtils.toString(response.getEntity(),"UTF-8");
+            //发送请求，关闭响应时连接归还连接池
+            try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+                //判断响应状态
+                if(response.getStatusLine().getStatusCode() == 200){
+                    result = EntityUtils.toString(response.getEntity(),"UTF-8");
+                } else {
+                    EntityUtils.consume(response.getEntity());
+                }
             }
         }catch (Exception e){
-            e.printStackTrace();
-        }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            log.error("GET请求失败：{}", url, e);
         }
 
         return result;
@@ -81,43 +164,26 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
-
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            // 创建参数列表
-            if (paramMap != null) {
-                List<NameValuePair> paramList = new ArrayList();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
-                }
-                // 模拟表单
-                UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
-                httpPost.setEntity(entity);
-            }
-
-            httpPost.setConfig(builderRequestConfig());
-
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        // 创建参数列表
+        if (paramMap != null) {
+            List<NameValuePair> paramList = new ArrayList();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
             }
+            // 模拟表单
+            UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
+            httpPost.setEntity(entity);
         }
 
-        return resultString;
+        httpPost.setConfig(requestConfig);
+
+        // 执行http请求
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        }
     }
 
     /**
@@ -128,52 +194,84 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
-
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            if (paramMap != null) {
-                //构造json格式数据
-                JSONObject jsonObject = new JSONObject();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    jsonObject.put(param.getKey(),param.getValue());
-                }
-                StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
-                //设置请求编码
-                entity.setContentEncoding("utf-8");
-                //设置数据类型
-                entity.setContentType("application/json");
-                httpPost.setEntity(entity);
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
+
+        if (paramMap != null) {
+            //构造json格式数据
+            JSONObject jsonObject = new JSONObject();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                jsonObject.put(param.getKey(),param.getValue());
             }
+            StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
+            //设置请求编码
+            entity.setContentEncoding("utf-8");
+            //设置数据类型
+            entity.setContentType("application/json");
+            httpPost.setEntity(entity);
+        }
 
-            httpPost.setConfig(builderRequestConfig());
+        httpPost.setConfig(requestConfig);
 
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+        // 执行http请求
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        }
+    }
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
+    /**
+     * 异步发送GET方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap) {
+        return CompletableFuture.supplyAsync(() -> doGet(url, paramMap), asyncExecutor);
+    }
+
+    /**
+     * 异步发送POST方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doPostAsync(String url, Map<String, String> paramMap) {
+        return CompletableFuture.supplyAsync(() -> {
             try {
-                response.close();
+                return doPost(url, paramMap);
             } catch (IOException e) {
-                e.printStackTrace();
+                throw new UncheckedIOException(e);
             }
-        }
+        }, asyncExecutor);
+    }
 
-        return resultString;
+    /**
+     * 异步发送json格式的POST请求
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doPost4JsonAsync(String url, Map<String, String> paramMap) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return doPost4Json(url, paramMap);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, asyncExecutor);
     }
-    private static RequestConfig builderRequestConfig() {
-        return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
+
+    private static void close(CloseableHttpClient client, ExecutorService executor) {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("关闭HttpClient失败", e);
+            }
+        }
     }
 
 }
@@ -4,7 +4,10 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
 import java.util.Map;
 
@@ -19,8 +22,18 @@ public class JwtUtil {
      * @return
      */
     public static String createJWT(String secretKey, long ttlMillis, Map<String, Object> claims) {
-        // 指定签名的时候使用的签名算法，也就是header那部分
-        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
+        return createJWT(signingKey(secretKey), ttlMillis, claims);
+    }
+
+    /**
+     * 生成jwt，使用预先构造的签名秘钥
+     *
+     * @param signingKey 由signingKey方法构造的秘钥
+     * @param ttlMillis  jwt过期时间(毫秒)
+     * @param claims     设置的信息
+     * @return
+     */
+    public static String createJWT(Key signingKey, long ttlMillis, Map<String, Object> claims) {
 
         // 生成JWT的时间
         long expMillis = System.currentTimeMillis() + ttlMillis;
@@ -31,7 +44,7 @@ public class JwtUtil {
                 // 如果有私有声明，一定要先设置这个自己创建的私有的声明，这个是给builder的claim赋值，一旦写在标准的声明赋值之后，就是覆盖了那些标准的声明的
                 .setClaims(claims)
                 // 设置签名使用的签名算法和签名使用的秘钥
-                .signWith(signatureAlgorithm, secretKey.getBytes(StandardCharsets.UTF_8))
+                .signWith(SignatureAlgorithm.HS256, signingKey)
                 // 设置过期时间
                 .setExpiration(exp);
 
@@ -46,13 +59,34 @@ public class JwtUtil {
      * @return
      */
     public static Claims parseJWT(String secretKey, String token) {
+        return parseJWT(signingKey(secretKey), token);
+    }
+
+    /**
+     * Token解密，使用预先构造的签名秘钥
+     *
+     * @param signingKey 由signingKey方法构造的秘钥
+     * @param token      加密后的token
+     * @return
+     */
+    public static Claims parseJWT(Key signingKey, String token) {
         // 得到DefaultJwtParser
         Claims claims = Jwts.parser()
                 // 设置签名的秘钥
-                .setSigningKey(secretKey.getBytes(StandardCharsets.UTF_8))
+                .setSigningKey(signingKey)
                 // 设置需要解析的jwt
                 .parseClaimsJws(token).getBody();
         return claims;
     }
 
+    /**
+     * 把字符串秘钥转换为HS256签名秘钥，结果可以复用，避免每次签名和校验都重新转换
+     *
+     * @param secretKey jwt秘钥
+     * @return
+     */
+    public static Key signingKey(String secretKey) {
+        return new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+    }
+
 }
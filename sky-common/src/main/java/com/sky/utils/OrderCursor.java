@@ -0,0 +1,69 @@
+package com.sky.utils;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.CursorInvalidException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 订单分页游标，内容为 下单时间,订单id 的base64编码
+ * 游标来自客户端，解析失败时统一抛出CursorInvalidException
+ */
+public class OrderCursor {
+
+    //正常游标编码后不超过50个字符，过长的直接拒绝，不做解码
+    private static final int MAX_LENGTH = 64;
+
+    private final LocalDateTime orderTime;
+    private final Long id;
+
+    private OrderCursor(LocalDateTime orderTime, Long id) {
+        this.orderTime = orderTime;
+        this.id = id;
+    }
+
+    /**
+     * 生成游标
+     * @param orderTime
+     * @param id
+     * @return
+     */
+    public static String encode(LocalDateTime orderTime, Long id) {
+        String cursor = orderTime + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * @param cursor
+     * @return
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.length() > MAX_LENGTH) {
+            throw new CursorInvalidException(MessageConstant.ORDER_CURSOR_INVALID);
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", -1);
+            if (parts.length == 2) {
+                LocalDateTime orderTime = LocalDateTime.parse(parts[0]);
+                long id = Long.parseLong(parts[1]);
+                if (id > 0) {
+                    return new OrderCursor(orderTime, id);
+                }
+            }
+        } catch (RuntimeException e) {
+            //base64、时间或id格式错误
+        }
+        throw new CursorInvalidException(MessageConstant.ORDER_CURSOR_INVALID);
+    }
+
+    public LocalDateTime getOrderTime() {
+        return orderTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sky.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 订单号生成器，雪花算法：41位毫秒时间戳 + 10位节点id + 12位序列号
+ * 时间戳和序列号保存在同一个AtomicLong中，通过CAS无锁递增，
+ * 同一毫秒内序列号用完时借用下一毫秒，时钟回拨时沿用上次的时间戳继续递增，保证单节点内严格递增。
+ * 生成的id转为定长的36进制大写字符串，字典序与数值顺序一致。
+ */
+public class OrderNumberGenerator {
+
+    //起始时间 2024-01-01 00:00:00 UTC
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    //Long.MAX_VALUE的36进制长度
+    private static final int NUMBER_LENGTH = 13;
+
+    private final long nodeId;
+    //当前时间，单位毫秒
+    private final LongSupplier clock;
+    //高位为相对EPOCH的时间戳，低SEQUENCE_BITS位为序列号
+    private final AtomicLong state = new AtomicLong();
+    //节点id不再归当前实例所有时停止生成
+    private volatile boolean disabled;
+
+    public OrderNumberGenerator(long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    /**
+     * 指定时钟，用于测试同一毫秒和时钟回拨
+     * @param nodeId
+     * @param clock
+     */
+    OrderNumberGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点id必须在0-" + MAX_NODE_ID + "之间：" + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * 生成下一个id
+     * @return
+     */
+    public long nextId() {
+        if (disabled) {
+            throw new IllegalStateException("订单号生成器已停用，节点id：" + nodeId);
+        }
+        long last;
+        long next;
+        do {
+            last = state.get();
+            long now = clock.getAsLong() - EPOCH;
+            if (now > (last >>> SEQUENCE_BITS)) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                //同一毫秒或时钟回拨，序列号溢出时自然进位到时间戳
+                next = last + 1;
+            }
+        } while (!state.compareAndSet(last, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * 停用生成器，节点id可能已被其他实例使用
+     */
+    public void disable() {
+        disabled = true;
+    }
+
+    /**
+     * 生成下一个订单号
+     * @return
+     */
+    public String nextNumber() {
+        String number = Long.toString(nextId(), 36).toUpperCase();
+        if (number.length() >= NUMBER_LENGTH) {
+            return number;
+        }
+        char[] chars = new char[NUMBER_LENGTH];
+        Arrays.fill(chars, 0, NUMBER_LENGTH - number.length(), '0');
+        number.getChars(0, number.length(), chars, NUMBER_LENGTH - number.length());
+        return new String(chars);
+    }
+}
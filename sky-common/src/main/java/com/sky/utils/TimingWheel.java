@@ -0,0 +1,300 @@
+package com.sky.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ * 每层有wheelSize个槽，每个槽的跨度为tickMs，超出本层范围的任务放入上一层（上一层的槽跨度为本层的总跨度），
+ * 上层的槽到期后任务重新加入时间轮，逐层降级直到到期。
+ * 只有非空的槽会进入DelayQueue，工作线程只在有槽到期时被唤醒，不需要空转扫描，
+ * 到期的任务交给executor执行，不阻塞时间轮的推进。
+ */
+@Slf4j
+public class TimingWheel {
+
+    private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Executor executor;
+    private final long tickMs;
+    private final Wheel wheel;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param name      工作线程名称
+     * @param tickMs    最底层每个槽的跨度，即定时精度，单位毫秒
+     * @param wheelSize 每层的槽数
+     * @param executor  执行到期任务的线程池
+     */
+    public TimingWheel(String name, long tickMs, int wheelSize, Executor executor) {
+        this.executor = executor;
+        this.tickMs = tickMs;
+        this.wheel = new Wheel(tickMs, wheelSize, System.currentTimeMillis());
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 在指定时间点执行任务，时间点已过时立即执行
+     * @param task
+     * @param deadlineMs 到期时间戳，单位毫秒
+     * @return 可用于取消任务的句柄
+     */
+    public Timeout schedule(Runnable task, long deadlineMs) {
+        //槽在其跨度的起点到期，到期时间向上取整到tickMs，保证任务不会提前执行
+        long expiration = (deadlineMs + tickMs - 1) / tickMs * tickMs;
+        Timeout timeout = new Timeout(task, deadlineMs, expiration);
+        size.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            addTimeout(timeout);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return timeout;
+    }
+
+    /**
+     * 等待执行的任务数
+     * @return
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * 停止工作线程，未到期的任务不再执行
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                advanceClock(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("时间轮推进异常", e);
+            }
+        }
+    }
+
+    /**
+     * 取出到期的槽，推进时间轮并把槽内任务重新加入，已到期的任务会被执行
+     */
+    private void advanceClock(long timeoutMs) throws InterruptedException {
+        Bucket bucket = delayQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                wheel.advanceClock(bucket.getExpiration());
+                bucket.flush(this::addTimeout);
+                bucket = delayQueue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addTimeout(Timeout timeout) {
+        if (!wheel.add(timeout) && timeout.expire()) {
+            //已到期且未被取消
+            try {
+                executor.execute(timeout.task);
+            } catch (Exception e) {
+                log.error("时间轮任务提交失败", e);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的一层
+     */
+    private class Wheel {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket[] buckets;
+        private volatile long currentTime;
+        private volatile Wheel overflowWheel;
+
+        Wheel(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        /**
+         * @return 已取消或已到期时返回false
+         */
+        boolean add(Timeout timeout) {
+            long expiration = timeout.expiration;
+            if (timeout.isCancelled() || expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                //槽的到期时间变化说明是新一轮使用，需要重新放入延迟队列
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            return getOverflowWheel().add(timeout);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                Wheel overflow = overflowWheel;
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Wheel getOverflowWheel() {
+            if (overflowWheel == null) {
+                synchronized (this) {
+                    if (overflowWheel == null) {
+                        overflowWheel = new Wheel(interval, wheelSize, currentTime);
+                    }
+                }
+            }
+            return overflowWheel;
+        }
+    }
+
+    /**
+     * 时间轮中的一个槽，保存到期时间落在同一跨度内的任务
+     */
+    private static class Bucket implements Delayed {
+        private final AtomicLong expiration = new AtomicLong(-1);
+        private final Set<Timeout> timeouts = new LinkedHashSet<>();
+
+        boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        synchronized void add(Timeout timeout) {
+            timeouts.add(timeout);
+            timeout.bucket = this;
+        }
+
+        synchronized void remove(Timeout timeout) {
+            if (timeout.bucket == this) {
+                timeouts.remove(timeout);
+                timeout.bucket = null;
+            }
+        }
+
+        void flush(Consumer<Timeout> consumer) {
+            List<Timeout> list;
+            synchronized (this) {
+                list = new ArrayList<>(timeouts);
+                for (Timeout timeout : list) {
+                    timeout.bucket = null;
+                }
+                timeouts.clear();
+                expiration.set(-1);
+            }
+            list.forEach(consumer);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getExpiration(), ((Bucket) o).getExpiration());
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final long expiration;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private volatile Bucket bucket;
+
+        private Timeout(Runnable task, long deadline, long expiration) {
+            this.task = task;
+            this.deadline = deadline;
+            this.expiration = expiration;
+        }
+
+        /**
+         * 取消任务
+         * @return 任务已执行或已取消时返回false
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            size.decrementAndGet();
+            Bucket b = bucket;
+            if (b != null) {
+                b.remove(this);
+            }
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        private boolean expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -5,34 +5,45 @@ import com.alibaba.fastjson.JSONObject;
 import com.sky.properties.WeChatProperties;
 import com.wechat.pay.contrib.apache.httpclient.WechatPayHttpClientBuilder;
 import com.wechat.pay.contrib.apache.httpclient.util.PemUtil;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
-import java.util.List;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 微信支付工具类
+ * 商户私钥和平台证书只在启动时和文件修改后解析，调用微信接口共用一个带连接池的客户端
  */
 @Component
+@Slf4j
 public class WeChatPayUtil {
 
     //微信支付下单接口地址
@@ -41,35 +52,145 @@ public class WeChatPayUtil {
     //申请退款接口地址
     public static final String REFUNDS = "https://api.mch.weixin.qq.com/v3/refund/domestic/refunds";
 
+    //检查私钥和证书文件是否被修改的间隔，单位毫秒
+    private static final long RELOAD_CHECK_INTERVAL = 60 * 1000;
+
     @Autowired
     private WeChatProperties weChatProperties;
 
+    //所有客户端共用的连接池，重新加载证书时只替换客户端，不影响连接池
+    private PoolingHttpClientConnectionManager connectionManager;
+    //共享连接池的空闲连接清理线程，客户端使用共享连接池时HttpClientBuilder不会为其启动清理线程
+    private IdleConnectionEvictor connectionEvictor;
+    private volatile MerchantContext context;
+    private volatile long lastCheckTime;
+
+    //每个线程复用一个签名对象，私钥变化时重新初始化
+    private final ThreadLocal<SignatureHolder> signatures = new ThreadLocal<>();
+
+    @PostConstruct
+    public void init() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(50);
+        connectionManager.setDefaultMaxPerRoute(50);
+        connectionEvictor = new IdleConnectionEvictor(connectionManager, 5, TimeUnit.SECONDS, 30, TimeUnit.SECONDS);
+        connectionEvictor.start();
+        try {
+            getContext();
+        } catch (Exception e) {
+            //证书未配置时不影响启动，调用支付接口时再次尝试加载
+            log.warn("加载微信支付商户证书失败：{}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        MerchantContext current = context;
+        if (current != null) {
+            closeClient(current.httpClient);
+        }
+        connectionEvictor.shutdown();
+        connectionManager.shutdown();
+    }
+
     /**
-     * 获取调用微信接口的客户端工具对象
+     * 获取已加载的商户私钥和客户端，文件被修改后重新加载
      *
      * @return
      */
-    private CloseableHttpClient getClient() {
-        PrivateKey merchantPrivateKey = null;
+    private MerchantContext getContext() throws IOException {
+        MerchantContext current = context;
+        long now = System.currentTimeMillis();
+        if (current != null && now - lastCheckTime < RELOAD_CHECK_INTERVAL) {
+            return current;
+        }
+        synchronized (this) {
+            current = context;
+            if (current != null && now - lastCheckTime < RELOAD_CHECK_INTERVAL) {
+                return current;
+            }
+            File keyFile = new File(weChatProperties.getPrivateKeyFilePath());
+            File certFile = new File(weChatProperties.getWeChatPayCertFilePath());
+            if (current == null || current.isModified(keyFile, certFile)) {
+                MerchantContext old = current;
+                current = load(keyFile, certFile);
+                context = current;
+                log.info("微信支付商户证书已加载：{}", keyFile.getAbsolutePath());
+                if (old != null) {
+                    //连接池是共享的，关闭旧客户端不会关闭连接池，不影响正在进行的请求
+                    closeClient(old.httpClient);
+                }
+            }
+            lastCheckTime = now;
+            return current;
+        }
+    }
+
+    /**
+     * 解析商户私钥和平台证书，构造调用微信接口的客户端
+     *
+     * @param keyFile
+     * @param certFile
+     * @return
+     */
+    private MerchantContext load(File keyFile, File certFile) throws IOException {
+        long keyModified = keyFile.lastModified();
+        long certModified = certFile.lastModified();
+
+        PrivateKey merchantPrivateKey;
+        X509Certificate x509Certificate;
+        //merchantPrivateKey商户API私钥
+        try (InputStream in = new FileInputStream(keyFile)) {
+            merchantPrivateKey = PemUtil.loadPrivateKey(in);
+        }
+        //加载平台证书文件
+        try (InputStream in = new FileInputStream(certFile)) {
+            x509Certificate = PemUtil.loadCertificate(in);
+        }
+
+        // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
+        CloseableHttpClient httpClient = WechatPayHttpClientBuilder.create()
+                .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
+                .withWechatPay(Collections.singletonList(x509Certificate))
+                .setConnectionManager(connectionManager)
+                //连接池由本类管理，客户端被替换时不关闭连接池
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(2000)
+                        .setConnectionRequestTimeout(1000)
+                        .setSocketTimeout(10000)
+                        .build())
+                .build();
+
+        return new MerchantContext(merchantPrivateKey, httpClient, keyModified, certModified);
+    }
+
+    private void closeClient(CloseableHttpClient httpClient) {
         try {
-            //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
-            merchantPrivateKey = PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath())));
-            //加载平台证书文件
-            X509Certificate x509Certificate = PemUtil.loadCertificate(new FileInputStream(new File(weChatProperties.getWeChatPayCertFilePath())));
-            //wechatPayCertificates微信支付平台证书列表。你也可以使用后面章节提到的“定时更新平台证书功能”，而不需要关心平台证书的来龙去脉
-            List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
-
-            WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
-                    .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
-                    .withWechatPay(wechatPayCertificates);
-
-            // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
-            CloseableHttpClient httpClient = builder.build();
-            return httpClient;
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return null;
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("关闭微信支付客户端失败", e);
+        }
+    }
+
+    /**
+     * 使用商户私钥签名
+     *
+     * @param message
+     * @return
+     */
+    private String sign(String message) throws IOException, GeneralSecurityException {
+        PrivateKey privateKey = getContext().privateKey;
+        SignatureHolder holder = signatures.get();
+        if (holder == null || holder.privateKey != privateKey) {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(privateKey);
+            holder = new SignatureHolder(privateKey, signature);
+            signatures.set(holder);
         }
+        //sign之后签名对象恢复到initSign后的状态，可以直接复用
+        holder.signature.update(message.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(holder.signature.sign());
     }
 
     /**
@@ -80,7 +201,7 @@ public class WeChatPayUtil {
      * @return
      */
     private String post(String url, String body) throws Exception {
-        CloseableHttpClient httpClient = getClient();
+        CloseableHttpClient httpClient = getContext().httpClient;
 
         HttpPost httpPost = new HttpPost(url);
         httpPost.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
@@ -88,13 +209,9 @@ public class WeChatPayUtil {
         httpPost.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
         httpPost.setEntity(new StringEntity(body, "UTF-8"));
 
-        CloseableHttpResponse response = httpClient.execute(httpPost);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        //只关闭响应，连接归还连接池
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity());
         }
     }
 
@@ -105,20 +222,15 @@ public class WeChatPayUtil {
      * @return
      */
     private String get(String url) throws Exception {
-        CloseableHttpClient httpClient = getClient();
+        CloseableHttpClient httpClient = getContext().httpClient;
 
         HttpGet httpGet = new HttpGet(url);
         httpGet.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+            return EntityUtils.toString(response.getEntity());
         }
     }
 
@@ -168,7 +280,7 @@ public class WeChatPayUtil {
         String bodyAsString = jsapi(orderNum, total, description, openid);
         //解析返回结果
         JSONObject jsonObject = JSON.parseObject(bodyAsString);
-        System.out.println(jsonObject);
+        log.debug("微信支付下单结果：{}", jsonObject);
 
         String prepayId = jsonObject.getString("prepay_id");
         if (prepayId != null) {
@@ -184,13 +296,7 @@ public class WeChatPayUtil {
             for (Object o : list) {
                 stringBuilder.append(o).append("\n");
             }
-            String signMessage = stringBuilder.toString();
-            byte[] message = signMessage.getBytes();
-
-            Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initSign(PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath()))));
-            signature.update(message);
-            String packageSign = Base64.getEncoder().encodeToString(signature.sign());
+            String packageSign = sign(stringBuilder.toString());
 
             //构造数据给微信小程序，用于调起微信支付
             JSONObject jo = new JSONObject();
@@ -232,4 +338,35 @@ public class WeChatPayUtil {
         //调用申请退款接口
         return post(REFUNDS, body);
     }
+
+    /**
+     * 已加载的商户私钥和对应的客户端，以及加载时文件的修改时间
+     */
+    private static class MerchantContext {
+        private final PrivateKey privateKey;
+        private final CloseableHttpClient httpClient;
+        private final long keyModified;
+        private final long certModified;
+
+        MerchantContext(PrivateKey privateKey, CloseableHttpClient httpClient, long keyModified, long certModified) {
+            this.privateKey = privateKey;
+            this.httpClient = httpClient;
+            this.keyModified = keyModified;
+            this.certModified = certModified;
+        }
+
+        boolean isModified(File keyFile, File certFile) {
+            return keyFile.lastModified() != keyModified || certFile.lastModified() != certModified;
+        }
+    }
+
+    private static class SignatureHolder {
+        private final PrivateKey privateKey;
+        private final Signature signature;
+
+        SignatureHolder(PrivateKey privateKey, Signature signature) {
+            this.privateKey = privateKey;
+            this.signature = signature;
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package com.sky.utils;
+
+import com.sky.exception.CursorInvalidException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderCursorTest {
+
+    @Test
+    public void testRoundTrip() {
+        LocalDateTime orderTime = LocalDateTime.of(2025, 3, 1, 12, 30, 45, 123_000_000);
+        String cursor = OrderCursor.encode(orderTime, 1024L);
+
+        OrderCursor decoded = OrderCursor.decode(cursor);
+
+        assertEquals(orderTime, decoded.getOrderTime());
+        assertEquals(1024L, decoded.getId());
+        //url安全，可以直接放在查询参数中
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    public void testRoundTripWholeSeconds() {
+        LocalDateTime orderTime = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+        OrderCursor decoded = OrderCursor.decode(OrderCursor.encode(orderTime, Long.MAX_VALUE));
+
+        assertEquals(orderTime, decoded.getOrderTime());
+        assertEquals(Long.MAX_VALUE, decoded.getId());
+    }
+
+    /**
+     * 游标的任意字符被修改后，要么仍能解析出合法的值，要么抛出CursorInvalidException，不会抛出其他运行时异常
+     */
+    @Test
+    public void testTamperedCursor() {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_=+/!";
+        String cursor = OrderCursor.encode(LocalDateTime.of(2025, 3, 1, 12, 30), 1024L);
+        int rejected = 0;
+        for (int i = 0; i < cursor.length(); i++) {
+            for (char c : alphabet.toCharArray()) {
+                char[] chars = cursor.toCharArray();
+                chars[i] = c;
+                try {
+                    OrderCursor decoded = OrderCursor.decode(new String(chars));
+                    assertNotNull(decoded.getOrderTime());
+                    assertTrue(decoded.getId() > 0);
+                } catch (CursorInvalidException e) {
+                    rejected++;
+                }
+            }
+        }
+        assertTrue(rejected > 0);
+        assertThrows(CursorInvalidException.class, () -> OrderCursor.decode(cursor.substring(0, cursor.length() / 2)));
+        assertThrows(CursorInvalidException.class, () -> OrderCursor.decode(cursor + cursor));
+    }
+
+    @Test
+    public void testMalformedCursor() {
+        String[] contents = {
+                "",
+                "2025-03-01T12:30",
+                "2025-03-01T12:30,",
+                ",1024",
+                "2025-03-01T12:30,abc",
+                "2025-03-01T12:30,1024,1",
+                "2025-13-01T12:30,1024",
+                "2025-03-01T12:30,-1",
+                "2025-03-01T12:30,0",
+                "2025-03-01T12:30,99999999999999999999"
+        };
+        for (String content : contents) {
+            String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(content.getBytes(StandardCharsets.UTF_8));
+            assertThrows(CursorInvalidException.class, () -> OrderCursor.decode(cursor), content);
+        }
+        assertThrows(CursorInvalidException.class, () -> OrderCursor.decode(null));
+        assertThrows(CursorInvalidException.class, () -> OrderCursor.decode("%%%"));
+        assertThrows(CursorInvalidException.class, () -> OrderCursor.decode(new String(new char[1000]).replace('\0', 'A')));
+    }
+}
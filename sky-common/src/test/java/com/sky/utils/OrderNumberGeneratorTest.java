@@ -0,0 +1,112 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderNumberGeneratorTest {
+
+    //2025-01-01 00:00:00 UTC
+    private static final long NOW = 1735689600000L;
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long NODE_ID = 5;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final OrderNumberGenerator generator = new OrderNumberGenerator(NODE_ID, clock::get);
+
+    /**
+     * 同一毫秒内序列号用完后借用下一毫秒，序列号从0开始
+     */
+    @Test
+    public void testSequenceRolloverWithinMillisecond() {
+        long last = -1;
+        for (int i = 0; i <= SEQUENCE_MASK; i++) {
+            long id = generator.nextId();
+            assertEquals(NOW - EPOCH, timestamp(id));
+            assertEquals(i, sequence(id));
+            assertTrue(id > last);
+            last = id;
+        }
+
+        long id = generator.nextId();
+        assertEquals(NOW - EPOCH + 1, timestamp(id));
+        assertEquals(0, sequence(id));
+        assertEquals(NODE_ID, nodeId(id));
+        assertTrue(id > last);
+
+        //时钟追上借用的毫秒时继续递增，不会重复
+        clock.set(NOW + 1);
+        long next = generator.nextId();
+        assertEquals(NOW - EPOCH + 1, timestamp(next));
+        assertEquals(1, sequence(next));
+    }
+
+    /**
+     * 时钟回拨时沿用上次的时间戳继续递增，时钟恢复后使用新的时间戳
+     */
+    @Test
+    public void testClockMovingBackwards() {
+        long first = generator.nextId();
+
+        clock.set(NOW - 10_000);
+        long second = generator.nextId();
+        long third = generator.nextId();
+        assertTrue(second > first);
+        assertTrue(third > second);
+        assertEquals(NOW - EPOCH, timestamp(second));
+        assertEquals(NOW - EPOCH, timestamp(third));
+
+        clock.set(NOW + 5);
+        long fourth = generator.nextId();
+        assertEquals(NOW - EPOCH + 5, timestamp(fourth));
+        assertEquals(0, sequence(fourth));
+        assertTrue(fourth > third);
+    }
+
+    /**
+     * 订单号定长，字典序与生成顺序一致
+     */
+    @Test
+    public void testNumberIsFixedLengthAndOrdered() {
+        String last = "";
+        for (int i = 0; i < 10000; i++) {
+            if (i % 1000 == 0) {
+                clock.addAndGet(1);
+            }
+            String number = generator.nextNumber();
+            assertEquals(13, number.length());
+            assertTrue(number.compareTo(last) > 0);
+            last = number;
+        }
+    }
+
+    @Test
+    public void testInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(1L << NODE_BITS));
+    }
+
+    @Test
+    public void testDisabled() {
+        generator.nextId();
+        generator.disable();
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    private static long timestamp(long id) {
+        return id >>> (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    private static long nodeId(long id) {
+        return (id >>> SEQUENCE_BITS) & ((1L << NODE_BITS) - 1);
+    }
+
+    private static long sequence(long id) {
+        return id & SEQUENCE_MASK;
+    }
+}
@@ -0,0 +1,117 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    //最底层跨度40ms，第二层160ms，第三层640ms
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 4;
+
+    private TimingWheel timingWheel;
+
+    @BeforeEach
+    public void setUp() {
+        timingWheel = new TimingWheel("timing-wheel-test", TICK_MS, WHEEL_SIZE, Runnable::run);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        timingWheel.stop();
+    }
+
+    /**
+     * 到期时间已过的任务在schedule时立即执行
+     */
+    @Test
+    public void testDeadlineInPast() {
+        AtomicInteger count = new AtomicInteger();
+        timingWheel.schedule(count::incrementAndGet, System.currentTimeMillis() - 1000);
+        timingWheel.schedule(count::incrementAndGet, 0);
+
+        assertEquals(2, count.get());
+        assertEquals(0, timingWheel.size());
+    }
+
+    /**
+     * 超出最底层范围的任务放入上层，逐层降级后按到期时间执行，且不会提前执行
+     */
+    @Test
+    public void testOverflowWheelCascade() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        //分别落在第一层、第二层、第三层和第四层
+        long[] delays = {25, 120, 500, 1500};
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        Map<Long, Long> firedAt = new ConcurrentHashMap<>();
+        List<Long> order = new ArrayList<>();
+        for (long delay : delays) {
+            long deadline = now + delay;
+            timingWheel.schedule(() -> {
+                firedAt.put(deadline, System.currentTimeMillis());
+                synchronized (order) {
+                    order.add(deadline);
+                }
+                latch.countDown();
+            }, deadline);
+        }
+        assertEquals(delays.length, timingWheel.size());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (long delay : delays) {
+            long deadline = now + delay;
+            long fired = firedAt.get(deadline);
+            assertTrue(fired >= deadline, "任务提前执行：" + delay);
+            assertTrue(fired < deadline + 500, "任务执行过晚：" + delay);
+        }
+        for (int i = 1; i < order.size(); i++) {
+            assertTrue(order.get(i - 1) < order.get(i));
+        }
+        assertEquals(0, timingWheel.size());
+    }
+
+    /**
+     * 取消与到期并发时，每个任务要么取消成功、要么执行，且只执行一次
+     */
+    @Test
+    public void testCancelRacingWithExpiry() throws InterruptedException {
+        int taskCount = 2000;
+        //到期时间分散在50ms内，每个任务在到期前后被取消，和时间轮的工作线程竞争
+        long base = System.currentTimeMillis() + 50;
+        long[] deadlines = new long[taskCount];
+        AtomicInteger[] runs = new AtomicInteger[taskCount];
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            AtomicInteger run = new AtomicInteger();
+            runs[i] = run;
+            deadlines[i] = base + i / 40;
+            timeouts.add(timingWheel.schedule(run::incrementAndGet, deadlines[i]));
+        }
+
+        boolean[] cancelled = new boolean[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            while (System.currentTimeMillis() < deadlines[i] - i % 3) {
+                Thread.yield();
+            }
+            cancelled[i] = timeouts.get(i).cancel();
+        }
+        Thread.sleep(300);
+
+        for (int i = 0; i < taskCount; i++) {
+            assertEquals(cancelled[i] ? 0 : 1, runs[i].get(), "任务" + i);
+            assertFalse(timeouts.get(i).cancel());
+        }
+        assertEquals(0, timingWheel.size());
+    }
+}
@@ -0,0 +1,34 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 按天分组的运营统计数据
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyStatisticsDTO implements Serializable {
+
+    //统计日期
+    private LocalDate date;
+
+    //营业额（已完成订单金额）
+    private Double turnover;
+
+    //订单总数
+    private Integer orderCount;
+
+    //有效订单数（已完成订单数）
+    private Integer validOrderCount;
+
+    //新增用户数
+    private Integer newUsers;
+}
@@ -27,4 +27,9 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //游标分页：上一页最后一条订单的下单时间和id
+    private LocalDateTime cursorTime;
+
+    private Long cursorId;
+
 }
@@ -0,0 +1,20 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+public class ReportExportDTO implements Serializable {
+
+    //开始日期
+    private LocalDate beginTime;
+
+    //结束日期
+    private LocalDate endTime;
+
+    //是否包含订单明细
+    private boolean withOrders;
+
+}
@@ -0,0 +1,54 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日运营数据汇总（按下单日期/注册日期归档）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBusinessStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //统计日期
+    private LocalDate statsDate;
+
+    //营业额（已完成订单金额）
+    private BigDecimal turnover;
+
+    //订单总数
+    private Integer totalOrders;
+
+    //有效订单数（已完成订单数）
+    private Integer validOrders;
+
+    //新增用户数
+    private Integer newUsers;
+
+    //各状态订单数 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+    private Integer pendingPaymentCount;
+
+    private Integer toBeConfirmedCount;
+
+    private Integer confirmedCount;
+
+    private Integer deliveryInProgressCount;
+
+    private Integer completedCount;
+
+    private Integer cancelledCount;
+
+    //更新时间
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,55 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobVO implements Serializable {
+
+    /**
+     * 任务状态
+     */
+    public static final String WAITING = "WAITING";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+
+    //任务id
+    private String jobId;
+
+    //任务状态 WAITING RUNNING SUCCESS FAILED
+    private String status;
+
+    //进度，0-100
+    private Integer progress;
+
+    //导出的开始日期
+    private LocalDate beginTime;
+
+    //导出的结束日期
+    private LocalDate endTime;
+
+    //下载文件名
+    private String fileName;
+
+    //文件大小，单位字节
+    private Long fileSize;
+
+    //失败原因
+    private String errorMsg;
+
+    //创建时间
+    private LocalDateTime createTime;
+
+    //完成时间
+    private LocalDateTime finishTime;
+}
@@ -0,0 +1,37 @@
+package com.sky.vo;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+
+/**
+ * 完整菜单，各部分的数据是预先序列化好的json，原样输出
+ * 客户端传入的版本号与当前版本一致时，对应部分的数据为null，客户端继续使用本地数据
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuVO implements Serializable {
+
+    //分类数据的版本号
+    private String categoryVersion;
+    //启用的分类列表
+    @JsonRawValue
+    private String categories;
+
+    //菜品数据的版本号
+    private String dishVersion;
+    //起售中的菜品列表，包含口味
+    @JsonRawValue
+    private String dishes;
+
+    //套餐数据的版本号
+    private String setmealVersion;
+    //起售中的套餐列表
+    @JsonRawValue
+    private String setmeals;
+}
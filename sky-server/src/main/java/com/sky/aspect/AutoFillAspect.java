@@ -12,8 +12,12 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 /**
  * 自定义切面,实现公共字段自动填充
@@ -28,51 +32,104 @@ public class AutoFillAspect {
     @Pointcut("execution(* com.sky.mapper.*.*(..)) && @annotation(com.sky.annotation.AutoFill)")
     public void autoFillPointCut(){}
 
+    /**
+     * 每个实体类的公共字段setter，第一次使用时解析，之后直接调用
+     */
+    private static final ClassValue<Setters> SETTERS = new ClassValue<Setters>() {
+        @Override
+        protected Setters computeValue(Class<?> type) {
+            return new Setters(type);
+        }
+    };
+
     /**
      * 前置通知，在通知中进行公共字段的赋值
      */
     @Before("autoFillPointCut()")
     public void autoFill(JoinPoint joinPoint){
-        log.info("开始进行公共字段的自动填充...");
         //获取当前被拦截的方法上的数据库操作类型
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();//方法签名对象
         AutoFill autoFill=signature.getMethod().getAnnotation(AutoFill.class);//获得方法上的注解对象
         OperationType operationType=autoFill.value();//获得数据库操作类型
-        //获取当前被拦截的方法的参数--实体对象
+        //获取当前被拦截的方法的参数--实体对象，批量操作时为实体集合
         Object[] args=joinPoint.getArgs();
-        if(args==null||args.length==0){
+        if(args==null||args.length==0||args[0]==null){
             return;
         }
-        Object entity=args[0];
+        if (log.isDebugEnabled()) {
+            log.debug("开始进行公共字段的自动填充：{}", signature.getName());
+        }
         //准备赋值的数据
         LocalDateTime now = LocalDateTime.now();
         Long currentId = BaseContext.getCurrentId();
-        //根据当前不同的操作类型,为对应的属性通过反射来赋值
-        if(operationType==OperationType.INSERT){
-            //插入操作,为4个公共字段赋值
-            try {
-                Method setCreateTime=entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
-                Method setCreateUser=entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
-                Method setUpdateTime=entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser=entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-                //通过反射为对象属性赋值
-                setCreateTime.invoke(entity,now);
-                setCreateUser.invoke(entity,currentId);
-                setUpdateTime.invoke(entity,now);
-                setUpdateUser.invoke(entity,currentId);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        if (args[0] instanceof Collection) {
+            for (Object entity : (Collection<?>) args[0]) {
+                fill(entity, operationType, now, currentId);
             }
-        }else if(operationType==OperationType.UPDATE){
-            //为2个公共字段赋值
+        } else {
+            fill(args[0], operationType, now, currentId);
+        }
+    }
+
+    /**
+     * 根据不同的操作类型为实体的公共字段赋值
+     */
+    private void fill(Object entity, OperationType operationType, LocalDateTime now, Long currentId) {
+        if (entity == null) {
+            return;
+        }
+        Setters setters = SETTERS.get(entity.getClass());
+        try {
+            if(operationType==OperationType.INSERT){
+                //插入操作,为4个公共字段赋值
+                setters.require(setters.createTime, AutoFillConstant.SET_CREATE_TIME).invokeExact(entity, (Object) now);
+                setters.require(setters.createUser, AutoFillConstant.SET_CREATE_USER).invokeExact(entity, (Object) currentId);
+                setters.require(setters.updateTime, AutoFillConstant.SET_UPDATE_TIME).invokeExact(entity, (Object) now);
+                setters.require(setters.updateUser, AutoFillConstant.SET_UPDATE_USER).invokeExact(entity, (Object) currentId);
+            }else if(operationType==OperationType.UPDATE){
+                //为2个公共字段赋值
+                setters.require(setters.updateTime, AutoFillConstant.SET_UPDATE_TIME).invokeExact(entity, (Object) now);
+                setters.require(setters.updateUser, AutoFillConstant.SET_UPDATE_USER).invokeExact(entity, (Object) currentId);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 实体类的公共字段setter，统一转换为(Object, Object)void的MethodHandle，实体类没有对应方法时为null
+     */
+    private static class Setters {
+        private final Class<?> type;
+        private final MethodHandle createTime;
+        private final MethodHandle createUser;
+        private final MethodHandle updateTime;
+        private final MethodHandle updateUser;
+
+        Setters(Class<?> type) {
+            this.type = type;
+            this.createTime = find(type, AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+            this.createUser = find(type, AutoFillConstant.SET_CREATE_USER, Long.class);
+            this.updateTime = find(type, AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+            this.updateUser = find(type, AutoFillConstant.SET_UPDATE_USER, Long.class);
+        }
+
+        MethodHandle require(MethodHandle handle, String name) {
+            if (handle == null) {
+                throw new IllegalStateException(type.getName() + "缺少方法" + name);
+            }
+            return handle;
+        }
+
+        private static MethodHandle find(Class<?> type, String name, Class<?> parameterType) {
             try {
-                Method setUpdateTime=entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser=entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-                //通过反射为对象属性赋值
-                setUpdateTime.invoke(entity,now);
-                setUpdateUser.invoke(entity,currentId);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                Method method = type.getMethod(name, parameterType);
+                return MethodHandles.publicLookup().unreflect(method)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
             }
         }
     }
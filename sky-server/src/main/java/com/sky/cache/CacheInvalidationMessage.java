@@ -0,0 +1,28 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 缓存失效通知，通过redis频道广播给所有节点
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage implements Serializable {
+
+    //发送通知的节点，节点收到自己发出的通知时忽略
+    private String origin;
+
+    private String cacheName;
+
+    //为null时表示整个缓存被清空
+    private Object key;
+
+    //缓存被清空后的新版本号
+    private Long generation;
+
+}
@@ -0,0 +1,38 @@
+package com.sky.cache;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.UUID;
+
+/**
+ * 发送缓存失效通知
+ */
+public class CacheInvalidationPublisher {
+
+    //当前节点的标识，每次启动都不同
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisTemplate redisTemplate;
+    private final String channel;
+
+    public CacheInvalidationPublisher(RedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    /**
+     * @param cacheName
+     * @param key        失效的key，清空整个缓存时为null
+     * @param generation 清空缓存后的新版本号，key失效时为null
+     */
+    public void publish(String cacheName, Object key, Long generation) {
+        redisTemplate.convertAndSend(channel, new CacheInvalidationMessage(nodeId, cacheName, key, generation));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+}
@@ -0,0 +1,39 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * redis中保存的缓存值，附带加载耗时和过期时间，用于在过期前提前刷新
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheValue implements Serializable {
+
+    private Object value;
+
+    //加载数据的耗时，单位毫秒
+    private long loadMillis;
+
+    //过期时间戳，单位毫秒
+    private long expireTime;
+
+    /**
+     * 概率提前刷新：越接近过期时间、加载越慢，提前刷新的概率越大，
+     * 并发请求中只有少数请求会去刷新，避免到期时同时重建
+     * @param beta 大于1时倾向于更早刷新
+     * @return
+     */
+    public boolean shouldRefresh(double beta) {
+        if (loadMillis <= 0) {
+            return false;
+        }
+        double gap = -loadMillis * beta * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= expireTime;
+    }
+}
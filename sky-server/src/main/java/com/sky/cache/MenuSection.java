@@ -0,0 +1,21 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 菜单中的一部分（分类、菜品或套餐），保存预先序列化好的json和按内容生成的版本号
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSection implements Serializable {
+
+    private String version;
+
+    private String json;
+
+}
@@ -0,0 +1,99 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预先序列化好的菜单数据，按内容摘要生成ETag，客户端可以用If-None-Match重新验证
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSnapshot implements Serializable {
+
+    //小于该长度的数据不压缩
+    private static final int GZIP_MIN_LENGTH = 1024;
+
+    private String etag;
+
+    //json格式的响应体
+    private byte[] json;
+
+    //gzip压缩后的响应体，数据较小时为null
+    private byte[] gzip;
+
+    /**
+     * 根据序列化好的json创建快照
+     * @param json
+     * @return
+     */
+    public static MenuSnapshot of(byte[] json) {
+        String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        byte[] gzip = null;
+        if (json.length >= GZIP_MIN_LENGTH) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                gzipOut.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            gzip = out.toByteArray();
+        }
+        return new MenuSnapshot(etag, json, gzip);
+    }
+
+    /**
+     * 生成响应，ETag与If-None-Match一致时返回304，客户端支持时返回gzip压缩的数据
+     * @param ifNoneMatch    请求头If-None-Match
+     * @param acceptEncoding 请求头Accept-Encoding
+     * @return
+     */
+    public ResponseEntity<byte[]> toResponse(String ifNoneMatch, String acceptEncoding) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        //客户端可以缓存，但每次使用前需要重新验证
+        headers.setCacheControl("no-cache");
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (matches(ifNoneMatch)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        byte[] body = json;
+        if (gzip != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = gzip;
+        }
+        headers.setContentLength(body.length);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    private boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
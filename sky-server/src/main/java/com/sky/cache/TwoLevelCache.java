@@ -0,0 +1,273 @@
+package com.sky.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 两级缓存：本地缓存(caffeine)在前，redis在后
+ * 读取时先查本地缓存，未命中再查redis并回填本地缓存；
+ * 修改和删除时同时处理两级缓存，并通过redis频道通知其他节点清理各自的本地缓存。
+ * 清空缓存时不查找和删除redis中的key，而是递增缓存的版本号（缓存名::generation），
+ * redis中的key带有版本号：缓存名::v版本号::key，旧版本的数据不再被读取，到期后由redis自动删除。
+ * 通过get(key, valueLoader)加载数据时（@Cacheable(sync = true)）防止缓存击穿：
+ * 同一节点内同一个key只有一个线程查询redis和数据库，其他线程等待结果；
+ * redis中的数据在过期前按概率提前刷新，多个节点之间通过redis锁保证只有一个节点刷新，刷新期间其他请求继续使用旧数据；
+ * redis中没有数据时不等待其他节点，每个节点各自查询一次数据库，请求线程不会因为轮询redis被长时间占用。
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    //本地版本号的刷新间隔
+    private static final long GENERATION_REFRESH_MILLIS = 5000;
+    //加载数据时redis锁的过期时间
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(3);
+    //提前刷新系数
+    private static final double REFRESH_BETA = 1.0;
+    //只有持有锁的线程才能释放锁
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache;
+    private final RedisTemplate redisTemplate;
+    //版本号用字符串保存，才能使用incr命令
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Duration redisTtl;
+    private final CacheInvalidationPublisher publisher;
+    private final String generationKey;
+    //本地保存的版本号，定期从redis刷新，避免失效通知丢失时一直读取旧版本
+    private volatile long generation;
+    private volatile long generationLoadTime;
+    //正在加载的key
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loadings = new ConcurrentHashMap<>();
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache,
+                         RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                         Duration redisTtl, CacheInvalidationPublisher publisher) {
+        super(false);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        //小于等于0时按不过期处理
+        this.redisTtl = redisTtl.isNegative() ? Duration.ZERO : redisTtl;
+        this.publisher = publisher;
+        this.generationKey = name + "::generation";
+        loadGeneration();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return lookup(key, currentGeneration());
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = localCache.getIfPresent(key);
+        if (value != null) {
+            return (T) value;
+        }
+
+        //同一个key只有第一个线程加载，其他线程等待它的结果
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> loading = loadings.putIfAbsent(key, future);
+        if (loading != null) {
+            return (T) waitFor(loading, key, valueLoader);
+        }
+        try {
+            Object loaded = load(key, valueLoader);
+            future.complete(loaded);
+            return (T) loaded;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadings.remove(key, future);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, currentGeneration(), 0);
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisTemplate.delete(redisKey(key, currentGeneration()));
+        localCache.invalidate(key);
+        publisher.publish(name, key, null);
+    }
+
+    /**
+     * 递增版本号，redis中旧版本的数据等待过期，不扫描也不删除
+     */
+    @Override
+    public void clear() {
+        long gen = stringRedisTemplate.opsForValue().increment(generationKey);
+        if (gen <= generation) {
+            //redis中的版本号丢失（例如redis被清空），直接跳到本地版本号之后
+            gen = stringRedisTemplate.opsForValue().increment(generationKey, generation - gen + 1);
+        }
+        onGeneration(gen);
+        publisher.publish(name, null, gen);
+    }
+
+    /**
+     * 收到其他节点的key失效通知，只清理本地缓存
+     * @param key
+     */
+    void evictLocal(Object key) {
+        localCache.invalidate(key);
+    }
+
+    /**
+     * 版本号变大时清空本地缓存，版本号只增不减，避免并发刷新时回退到旧版本
+     * @param gen 新的版本号
+     */
+    synchronized void onGeneration(long gen) {
+        generationLoadTime = System.currentTimeMillis();
+        if (gen > generation) {
+            generation = gen;
+            localCache.invalidateAll();
+        }
+    }
+
+    private Object lookup(Object key, long gen) {
+        Object value = localCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        CacheValue cacheValue = getRedisValue(key, gen);
+        return cacheValue == null ? null : cacheValue.getValue();
+    }
+
+    /**
+     * 从redis读取，未命中时查询数据库；需要提前刷新时只有获得redis锁的节点查询数据库，其他节点返回旧数据
+     */
+    private Object load(Object key, Callable<?> valueLoader) {
+        //加载前记录版本号，加载期间缓存被清空时，旧数据写入旧版本，不会被读取
+        long gen = currentGeneration();
+        CacheValue cached = getRedisValue(key, gen);
+        if (cached != null && !cached.shouldRefresh(REFRESH_BETA)) {
+            return cached.getValue();
+        }
+
+        String lockKey = redisKey(key, gen) + "::lock";
+        String token = UUID.randomUUID().toString();
+        boolean locked = Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token, LOCK_TIMEOUT));
+        if (!locked && cached != null) {
+            //其他节点正在刷新，继续使用旧数据
+            return cached.getValue();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Object loaded = valueLoader.call();
+            put(key, loaded, gen, System.currentTimeMillis() - start);
+            return loaded;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            if (locked) {
+                stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), token);
+            }
+        }
+    }
+
+    private Object waitFor(CompletableFuture<Object> loading, Object key, Callable<?> valueLoader) {
+        try {
+            return loading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    /**
+     * 读取redis中的数据，命中时回填本地缓存
+     */
+    private CacheValue getRedisValue(Object key, long gen) {
+        Object value = redisTemplate.opsForValue().get(redisKey(key, gen));
+        if (value == null) {
+            return null;
+        }
+        //兼容没有附带加载信息的旧数据
+        CacheValue cacheValue = value instanceof CacheValue ? (CacheValue) value : new CacheValue(value, 0, 0);
+        putLocal(key, cacheValue.getValue(), gen);
+        return cacheValue;
+    }
+
+    private void put(Object key, Object value, long gen, long loadMillis) {
+        if (value == null) {
+            return;
+        }
+        if (redisTtl.isZero()) {
+            //不过期，也不提前刷新
+            redisTemplate.opsForValue().set(redisKey(key, gen), new CacheValue(value, loadMillis, Long.MAX_VALUE));
+        } else {
+            long expireTime = System.currentTimeMillis() + redisTtl.toMillis();
+            redisTemplate.opsForValue().set(redisKey(key, gen), new CacheValue(value, loadMillis, expireTime), redisTtl);
+        }
+        putLocal(key, value, gen);
+    }
+
+    /**
+     * 只有数据的版本号仍是当前版本号时才写入本地缓存
+     * onGeneration先更新版本号再清空本地缓存，写入后再检查一次版本号：
+     * 写入发生在清空之前会被清空，发生在之后则能看到新版本号并自行删除，旧版本的数据不会留在本地缓存中
+     */
+    private void putLocal(Object key, Object value, long gen) {
+        if (gen != generation) {
+            return;
+        }
+        localCache.put(key, value);
+        if (gen != generation) {
+            localCache.invalidate(key);
+        }
+    }
+
+    private long currentGeneration() {
+        if (System.currentTimeMillis() - generationLoadTime > GENERATION_REFRESH_MILLIS) {
+            loadGeneration();
+        }
+        return generation;
+    }
+
+    private void loadGeneration() {
+        String gen = stringRedisTemplate.opsForValue().get(generationKey);
+        onGeneration(gen == null ? 0 : Long.parseLong(gen));
+    }
+
+    private String redisKey(Object key, long gen) {
+        return name + "::v" + gen + "::" + key;
+    }
+}
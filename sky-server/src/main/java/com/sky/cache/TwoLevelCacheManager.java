@@ -0,0 +1,84 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.TwoLevelCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存管理器，按缓存名称创建TwoLevelCache，同时监听其他节点发出的失效通知
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final RedisTemplate redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TwoLevelCacheProperties properties;
+    private final CacheInvalidationPublisher publisher;
+
+    public TwoLevelCacheManager(RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                                TwoLevelCacheProperties properties, CacheInvalidationPublisher publisher) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 处理其他节点的缓存失效通知
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (!(body instanceof CacheInvalidationMessage)) {
+            return;
+        }
+        CacheInvalidationMessage invalidation = (CacheInvalidationMessage) body;
+        if (publisher.getNodeId().equals(invalidation.getOrigin())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(invalidation.getCacheName());
+        if (cache != null) {
+            log.debug("收到缓存失效通知：{}", invalidation);
+            if (invalidation.getGeneration() != null) {
+                cache.onGeneration(invalidation.getGeneration());
+            } else {
+                cache.evictLocal(invalidation.getKey());
+            }
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaximumSize())
+                .expireAfterWrite(properties.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+        return new TwoLevelCache(name, localCache, redisTemplate, stringRedisTemplate,
+                Duration.ofSeconds(properties.getRedisTtlSeconds()), publisher);
+    }
+}
@@ -0,0 +1,46 @@
+package com.sky.config;
+
+import com.sky.cache.CacheInvalidationPublisher;
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.properties.TwoLevelCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 配置类，用于创建两级缓存管理器和缓存失效通知的监听容器
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(RedisTemplate redisTemplate,
+                                                                 TwoLevelCacheProperties twoLevelCacheProperties) {
+        return new CacheInvalidationPublisher(redisTemplate, twoLevelCacheProperties.getInvalidationChannel());
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisTemplate redisTemplate,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             TwoLevelCacheProperties twoLevelCacheProperties,
+                                             CacheInvalidationPublisher cacheInvalidationPublisher) {
+        log.info("开始创建两级缓存管理器：{}", twoLevelCacheProperties);
+        return new TwoLevelCacheManager(redisTemplate, stringRedisTemplate, twoLevelCacheProperties, cacheInvalidationPublisher);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       CacheInvalidationPublisher cacheInvalidationPublisher) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheInvalidationPublisher.getChannel()));
+        return container;
+    }
+}
@@ -0,0 +1,24 @@
+package com.sky.config;
+
+import com.sky.export.ExportStorage;
+import com.sky.export.LocalExportStorage;
+import com.sky.properties.ExportProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配置类，用于创建报表导出文件存储
+ */
+@Configuration
+@Slf4j
+public class ExportConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ExportStorage exportStorage(ExportProperties exportProperties) {
+        log.info("开始创建导出文件存储，目录：{}", exportProperties.getDir());
+        return new LocalExportStorage(exportProperties.getDir());
+    }
+}
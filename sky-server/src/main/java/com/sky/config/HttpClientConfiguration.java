@@ -0,0 +1,46 @@
+package com.sky.config;
+
+import com.sky.properties.HttpClientProperties;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * 配置类，按配置初始化HttpClientUtil的连接池，并定时输出连接池状态
+ */
+@Configuration
+@Slf4j
+public class HttpClientConfiguration {
+
+    @Autowired
+    private HttpClientProperties httpClientProperties;
+
+    @PostConstruct
+    public void init() {
+        HttpClientUtil.init(httpClientProperties);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        HttpClientUtil.shutdown();
+    }
+
+    /**
+     * 每分钟输出一次连接池状态，连接池空闲时不输出
+     */
+    @Scheduled(cron = "0 * * * * ?")
+    public void logPoolStats() {
+        PoolStats stats = HttpClientUtil.getPoolStats();
+        if (stats.getLeased() == 0 && stats.getPending() == 0) {
+            return;
+        }
+        log.debug("Http连接池状态：使用中{}，空闲{}，等待{}，最大{}",
+                stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+}
@@ -0,0 +1,105 @@
+package com.sky.config;
+
+import com.sky.properties.OrderProperties;
+import com.sky.utils.OrderNumberGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 配置类，用于创建订单号生成器
+ * 未配置节点id时从redis租用：依次尝试SET NX order_node_id:节点id，成功即占用，之后定时续期，停机时释放
+ */
+@Configuration
+@Slf4j
+public class OrderConfiguration {
+
+    private static final String NODE_ID_KEY = "order_node_id:";
+    private static final String NODE_ID_SEQ_KEY = "order_node_id_seq";
+    private static final int MAX_NODE_ID = 1023;
+    private static final Duration LEASE_TTL = Duration.ofSeconds(60);
+
+    //仍由当前实例持有时续期，返回1表示成功
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    //当前实例的租约标识
+    private final String leaseToken = UUID.randomUUID().toString();
+    //租用的节点id，使用配置的节点id时为-1
+    private volatile int leasedNodeId = -1;
+    private volatile OrderNumberGenerator generator;
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OrderNumberGenerator orderNumberGenerator(OrderProperties orderProperties) {
+        int nodeId = orderProperties.getNodeId();
+        if (nodeId < 0) {
+            nodeId = leaseNodeId();
+            leasedNodeId = nodeId;
+        }
+        log.info("开始创建订单号生成器，节点id：{}", nodeId);
+        generator = new OrderNumberGenerator(nodeId);
+        return generator;
+    }
+
+    /**
+     * 续期租用的节点id，续期失败时停止生成订单号，避免与其他实例使用同一节点id
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void renewNodeId() {
+        int nodeId = leasedNodeId;
+        if (nodeId < 0) {
+            return;
+        }
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(NODE_ID_KEY + nodeId),
+                leaseToken, String.valueOf(LEASE_TTL.toMillis()));
+        //租约已过期但未被占用时重新占用
+        if (!Long.valueOf(1).equals(renewed)
+                && !Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(NODE_ID_KEY + nodeId, leaseToken, LEASE_TTL))) {
+            log.error("订单号节点id：{}的租约已被其他实例占用，停止生成订单号，实例需要重启", nodeId);
+            generator.disable();
+            leasedNodeId = -1;
+        }
+    }
+
+    @PreDestroy
+    public void releaseNodeId() {
+        int nodeId = leasedNodeId;
+        if (nodeId >= 0) {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(NODE_ID_KEY + nodeId), leaseToken);
+        }
+    }
+
+    /**
+     * 从上次分配的位置开始依次尝试占用节点id，全部被占用时启动失败
+     * @return
+     */
+    private int leaseNodeId() {
+        Long start = stringRedisTemplate.opsForValue().increment(NODE_ID_SEQ_KEY);
+        for (int i = 0; i <= MAX_NODE_ID; i++) {
+            int nodeId = (int) ((start + i) % (MAX_NODE_ID + 1));
+            if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(NODE_ID_KEY + nodeId, leaseToken, LEASE_TTL))) {
+                return nodeId;
+            }
+        }
+        throw new IllegalStateException("没有可用的订单号节点id");
+    }
+}
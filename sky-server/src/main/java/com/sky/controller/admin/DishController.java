@@ -11,11 +11,11 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 /**
  * 菜品管理
@@ -28,8 +28,6 @@ public class DishController {
 
     @Autowired
     private DishService dishService;
-    @Autowired
-    private RedisTemplate redisTemplate;
 
     /**
      * 新增菜品
@@ -39,13 +37,13 @@ public class DishController {
      */
     @PostMapping
     @ApiOperation("新增菜品")
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "dishSnapshot", key = "#dishDTO.categoryId"),
+            @CacheEvict(cacheNames = "menuSnapshot", allEntries = true)
+    })
     public Result save(@RequestBody DishDTO dishDTO) {
         log.info("新增菜品：{}", dishDTO);
         dishService.saveWithFlavor(dishDTO);
-
-        //清理缓存数据
-        String key = "dish_" + dishDTO.getCategoryId();
-        cleanCache(key);
         return Result.success();
     }
 
@@ -71,13 +69,11 @@ public class DishController {
      */
     @DeleteMapping
     @ApiOperation("菜品批量删除")
+    @CacheEvict(cacheNames = {"dishSnapshot", "setmealSnapshot", "menuSnapshot"}, allEntries = true)
     public Result delete(@RequestParam List<Long> ids) {
         log.info("菜品批量删除：{}", ids);
         dishService.deleteBatch(ids);
 
-        //将所有的菜品缓存数据清理掉，所有以dish_开头的key
-        cleanCache("dish_*");
-
         return Result.success();
     }
 
@@ -103,13 +99,11 @@ public class DishController {
      */
     @PutMapping
     @ApiOperation("修改菜品")
+    @CacheEvict(cacheNames = {"dishSnapshot", "setmealSnapshot", "menuSnapshot"}, allEntries = true)
     public Result update(@RequestBody DishDTO dishDTO) {
         log.info("修改菜品：{}", dishDTO);
         dishService.updateWithFlavor(dishDTO);
 
-        //将所有的菜品缓存数据清理掉，所有以dish_开头的key
-        cleanCache("dish_*");
-
         return Result.success();
     }
 
@@ -122,12 +116,10 @@ public class DishController {
      */
     @PostMapping("/status/{status}")
     @ApiOperation("菜品起售停售")
+    @CacheEvict(cacheNames = {"dishSnapshot", "setmealSnapshot", "menuSnapshot"}, allEntries = true) //停售菜品会连带停售套餐，一并清理
     public Result<String> startOrStop(@PathVariable Integer status, Long id) {
         dishService.startOrStop(status, id);
 
-        //将所有的菜品缓存数据清理掉，所有以dish_开头的key
-        cleanCache("dish_*");
-
         return Result.success();
     }
 
@@ -143,13 +135,4 @@ public class DishController {
         List<Dish> list = dishService.list(categoryId);
         return Result.success(list);
     }
-
-    /**
-     * 清理缓存数据
-     * @param pattern
-     */
-    private void cleanCache(String pattern){
-        Set keys = redisTemplate.keys(pattern);
-        redisTemplate.delete(keys);
-    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.sky.dto.EmployeeDTO;
 import com.sky.dto.EmployeeLoginDTO;
 import com.sky.dto.EmployeePageQueryDTO;
 import com.sky.entity.Employee;
+import com.sky.interceptor.JwtTokenVerifier;
 import com.sky.properties.JwtProperties;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
@@ -19,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,6 +37,8 @@ public class EmployeeController {
     private EmployeeService employeeService;
     @Autowired
     private JwtProperties jwtProperties;
+    @Autowired
+    private JwtTokenVerifier jwtTokenVerifier;
 
     /**
      * 登录
@@ -67,13 +71,15 @@ public class EmployeeController {
         return Result.success(employeeLoginVO);
     }
     /**
-     * 退出
+     * 退出，注销当前令牌
      *
+     * @param request
      * @return
      */
     @PostMapping("/logout")
     @ApiOperation("员工退出")
-    public Result<String> logout() {
+    public Result<String> logout(HttpServletRequest request) {
+        jwtTokenVerifier.revoke(request.getHeader(jwtProperties.getAdminTokenName()));
         return Result.success();
     }
 
@@ -1,4 +1,59 @@
 package com.sky.controller.admin;
+
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.result.CursorPageResult;
+import com.sky.result.PageResult;
+import com.sky.result.Result;
+import com.sky.service.OrderService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 订单管理
+ */
+@RestController("adminOrderController")
+@RequestMapping("/admin/order")
+@Api(tags = "订单管理接口")
+@Slf4j
 public class OrderController {
 
+    @Autowired
+    private OrderService orderService;
+
+    /**
+     * 订单搜索
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    @GetMapping("/conditionSearch")
+    @ApiOperation("订单搜索")
+    public Result<PageResult> conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO) {
+        log.info("订单搜索：{}", ordersPageQueryDTO);
+        PageResult pageResult = orderService.conditionSearch(ordersPageQueryDTO);
+        return Result.success(pageResult);
+    }
+
+    /**
+     * 订单搜索，游标分页
+     *
+     * @param ordersPageQueryDTO
+     * @param cursor    上一页返回的nextCursor，第一页不传
+     * @param skipCount 是否跳过总数统计
+     * @return
+     */
+    @GetMapping("/conditionSearch/cursor")
+    @ApiOperation("订单搜索游标分页")
+    public Result<CursorPageResult> conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO, String cursor,
+                                                            @RequestParam(defaultValue = "false") boolean skipCount) {
+        log.info("订单搜索游标分页：{}，游标：{}", ordersPageQueryDTO, cursor);
+        CursorPageResult cursorPageResult = orderService.conditionSearchByCursor(ordersPageQueryDTO, cursor, skipCount);
+        return Result.success(cursorPageResult);
+    }
 }
@@ -1,7 +1,10 @@
 package com.sky.controller.admin;
 
+import com.sky.dto.ReportExportDTO;
 import com.sky.result.Result;
+import com.sky.service.ExportJobService;
 import com.sky.service.ReportService;
+import com.sky.vo.ExportJobVO;
 import com.sky.vo.OrderReportVO;
 import com.sky.vo.SalesTop10ReportVO;
 import com.sky.vo.TurnoverReportVO;
@@ -10,14 +13,16 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 
 /**
  * 数据统计相关接口
@@ -30,6 +35,8 @@ public class ReportController {
 
     @Autowired
     private ReportService reportService;
+    @Autowired
+    private ExportJobService exportJobService;
 
     /**
      * 营业额统计
@@ -43,8 +50,7 @@ public class ReportController {
         @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate beginTime,
         @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endTime) {
         log.info("开始统计营业额数据，开始时间：{}，结束时间：{}", beginTime, endTime);
-        reportService.getTurnoverStatistics(beginTime, endTime);
-            return Result.success(reportService.getTurnoverStatistics(beginTime, endTime));
+        return Result.success(reportService.getTurnoverStatistics(beginTime, endTime));
     }
 
     /**
@@ -83,7 +89,7 @@ public class ReportController {
      * @param endTime
      * @return
      */
-    @GetMapping("/ordersStstistics")
+    @GetMapping("/top10")
     @ApiOperation(value = "销量前10统计")
     public Result<SalesTop10ReportVO> top10(
             @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate beginTime,
@@ -93,10 +99,66 @@ public class ReportController {
     }
 
     /**
-     * 导出运营数据报表
+     * 导出运营数据报表，默认导出最近30天
+     * @param beginTime
+     * @param endTime
+     * @param withOrders 是否包含订单明细
      * @param response
      */
-    public void export(HttpServletResponse response) {
-        reportService.export(response);
+    @GetMapping("/export")
+    @ApiOperation("导出运营数据报表")
+    public void export(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate beginTime,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endTime,
+            @RequestParam(defaultValue = "false") boolean withOrders,
+            HttpServletResponse response) throws IOException {
+        if (beginTime == null || endTime == null) {
+            endTime = LocalDate.now().minusDays(1);
+            beginTime = endTime.minusDays(29);
+        }
+        log.info("导出运营数据报表，开始时间：{}，结束时间：{}", beginTime, endTime);
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader("Content-Disposition", "attachment;filename=report_" + beginTime + "_" + endTime + ".xlsx");
+        reportService.export(beginTime, endTime, withOrders, response.getOutputStream());
+    }
+
+    /**
+     * 提交报表导出任务，导出在后台线程池执行
+     * @param reportExportDTO
+     * @return 任务id
+     */
+    @PostMapping("/export/jobs")
+    @ApiOperation("提交报表导出任务")
+    public Result<String> submitExportJob(@RequestBody ReportExportDTO reportExportDTO) {
+        log.info("提交报表导出任务：{}", reportExportDTO);
+        return Result.success(exportJobService.submit(reportExportDTO));
+    }
+
+    /**
+     * 查询报表导出任务的状态和进度
+     * @param jobId
+     * @return
+     */
+    @GetMapping("/export/jobs/{jobId}")
+    @ApiOperation("查询报表导出任务")
+    public Result<ExportJobVO> getExportJob(@PathVariable String jobId) {
+        return Result.success(exportJobService.getJob(jobId));
+    }
+
+    /**
+     * 下载报表导出文件，支持Range分段下载
+     * @param jobId
+     * @return
+     */
+    @GetMapping("/export/jobs/{jobId}/file")
+    @ApiOperation("下载报表导出文件")
+    public ResponseEntity<Resource> downloadExportFile(@PathVariable String jobId) {
+        ExportJobVO job = exportJobService.getJob(jobId);
+        Resource file = exportJobService.getFile(jobId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + job.getFileName())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(file);
     }
 }
@@ -1,19 +1,17 @@
 package com.sky.controller.user;
 
-import com.sky.constant.StatusConstant;
-import com.sky.entity.Dish;
-import com.sky.result.Result;
-import com.sky.service.DishService;
-import com.sky.vo.DishVO;
+import com.sky.cache.MenuSnapshot;
+import com.sky.service.MenuSnapshotService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import java.util.List;
 
 @RestController("userDishController")
 @RequestMapping("/user/dish")
@@ -21,33 +19,22 @@ import java.util.List;
 @Api(tags = "C端-菜品浏览接口")
 public class DishController {
     @Autowired
-    private DishService dishService;
-    @Autowired
-    private RedisTemplate redisTemplate;
+    private MenuSnapshotService menuSnapshotService;
 
     /**
-     * 根据分类id查询菜品
+     * 根据分类id查询菜品，响应体为预先序列化的快照，支持ETag重新验证和gzip压缩
      *
      * @param categoryId
+     * @param ifNoneMatch
+     * @param acceptEncoding
      * @return
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询菜品")
-    public Result<List<DishVO>> list(Long categoryId) {
-        //构造redis中的key，规则：dish_分类id
-        String key = "dish_" + categoryId;
-        //查询redis中是否存在菜品数据
-        List<DishVO> list = (List<DishVO>) redisTemplate.opsForValue().get(key);
-        if (list != null && list.size() > 0) {
-            //如果存在，直接返回，无需查询数据
-            return Result.success(list);
-        }
-        //如果不存在，查询数据库，将查询到的数据库放到redis中
-        Dish dish = new Dish();
-        dish.setCategoryId(categoryId);
-        dish.setStatus(StatusConstant.ENABLE);
-        list = dishService.listWithFlavor(dish);
-        redisTemplate.opsForValue().set(key,list);
-        return Result.success(list);
+    public ResponseEntity<byte[]> list(Long categoryId,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        MenuSnapshot snapshot = menuSnapshotService.getDishSnapshot(categoryId);
+        return snapshot.toResponse(ifNoneMatch, acceptEncoding);
     }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.sky.controller.user;
+
+import com.sky.cache.MenuSnapshot;
+import com.sky.service.MenuSnapshotService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController("userMenuController")
+@RequestMapping("/user/menu")
+@Api(tags = "C端-菜单接口")
+public class MenuController {
+
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
+
+    /**
+     * 一次查询完整菜单（分类、菜品及口味、套餐），代替按分类逐个查询
+     * 传入本地数据的版本号时，只返回有变化的部分
+     *
+     * @param categoryVersion 本地分类数据的版本号
+     * @param dishVersion     本地菜品数据的版本号
+     * @param setmealVersion  本地套餐数据的版本号
+     * @param ifNoneMatch
+     * @param acceptEncoding
+     * @return
+     */
+    @GetMapping
+    @ApiOperation("查询完整菜单")
+    public ResponseEntity<byte[]> menu(String categoryVersion, String dishVersion, String setmealVersion,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        MenuSnapshot snapshot = menuSnapshotService.getMenuSnapshot(categoryVersion, dishVersion, setmealVersion);
+        return snapshot.toResponse(ifNoneMatch, acceptEncoding);
+    }
+}
@@ -2,6 +2,7 @@ package com.sky.controller.user;
 
 import com.sky.dto.OrdersPaymentDTO;
 import com.sky.dto.OrdersSubmitDTO;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -66,6 +67,22 @@ public class OrderController {
         PageResult pageResult = orderService.pageQuery4User(page, pageSize, status);
         return Result.success(pageResult);
     }
+    /**
+     * 历史订单游标分页查询，翻页深度不影响查询性能
+     *
+     * @param cursor    上一页返回的nextCursor，第一页不传
+     * @param pageSize
+     * @param status    订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+     * @param skipCount 是否跳过总数统计
+     * @return
+     */
+    @GetMapping("/historyOrders/cursor")
+    @ApiOperation("历史订单游标分页查询")
+    public Result<CursorPageResult> cursorPage(String cursor, int pageSize, Integer status,
+                                               @RequestParam(defaultValue = "false") boolean skipCount) {
+        CursorPageResult cursorPageResult = orderService.cursorQuery4User(cursor, pageSize, status, skipCount);
+        return Result.success(cursorPageResult);
+    }
     /**
      * 查询订单详情
      *
@@ -1,16 +1,18 @@
 package com.sky.controller.user;
 
-import com.sky.constant.StatusConstant;
-import com.sky.entity.Setmeal;
+import com.sky.cache.MenuSnapshot;
 import com.sky.result.Result;
+import com.sky.service.MenuSnapshotService;
 import com.sky.service.SetmealService;
 import com.sky.vo.DishItemVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import java.util.List;
@@ -21,23 +23,24 @@ import java.util.List;
 public class  SetmealController {
     @Autowired
     private SetmealService setmealService;
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
 
     /**
-     * 条件查询
+     * 条件查询，响应体为预先序列化的快照，支持ETag重新验证和gzip压缩
      *
      * @param categoryId
+     * @param ifNoneMatch
+     * @param acceptEncoding
      * @return
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询套餐")
-    @Cacheable(cacheNames = "setmealCache",key = "#categoryId") //key: setmealCache::100
-    public Result<List<Setmeal>> list(Long categoryId) {
-        Setmeal setmeal = new Setmeal();
-        setmeal.setCategoryId(categoryId);
-        setmeal.setStatus(StatusConstant.ENABLE);
-
-        List<Setmeal> list = setmealService.list(setmeal);
-        return Result.success(list);
+    public ResponseEntity<byte[]> list(Long categoryId,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        MenuSnapshot snapshot = menuSnapshotService.getSetmealSnapshot(categoryId);
+        return snapshot.toResponse(ifNoneMatch, acceptEncoding);
     }
 
     /**
@@ -0,0 +1,32 @@
+package com.sky.export;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 导出文件存储，默认存放在本地磁盘，可替换为对象存储实现
+ */
+public interface ExportStorage {
+
+    /**
+     * 打开写入导出文件的输出流
+     * @param key
+     * @return
+     */
+    OutputStream create(String key) throws IOException;
+
+    /**
+     * 读取导出文件，文件不存在时返回null
+     * @param key
+     * @return
+     */
+    Resource load(String key);
+
+    /**
+     * 删除导出文件
+     * @param key
+     */
+    void delete(String key);
+}
@@ -0,0 +1,43 @@
+package com.sky.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 本地磁盘导出文件存储
+ */
+@Slf4j
+public class LocalExportStorage implements ExportStorage {
+
+    private final Path dir;
+
+    public LocalExportStorage(String dir) {
+        this.dir = Paths.get(dir);
+    }
+
+    public OutputStream create(String key) throws IOException {
+        Files.createDirectories(dir);
+        return new BufferedOutputStream(Files.newOutputStream(dir.resolve(key)));
+    }
+
+    public Resource load(String key) {
+        Path file = dir.resolve(key);
+        return Files.exists(file) ? new FileSystemResource(file) : null;
+    }
+
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(dir.resolve(key));
+        } catch (IOException e) {
+            log.warn("删除导出文件失败：{}", key, e);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.sky.interceptor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * jwt令牌校验，缓存已校验通过的令牌
+ * 缓存的key为令牌的SHA-256摘要，不在内存中保存令牌原文，缓存条目在令牌过期时失效，
+ * 令牌被注销后记录到redis并通知所有节点，之后不再校验通过
+ */
+@Component
+@Slf4j
+public class JwtTokenVerifier implements MessageListener {
+
+    //缓存的最大令牌数
+    private static final long MAXIMUM_SIZE = 10000;
+    //已注销令牌的redis key前缀和通知频道
+    private static final String REVOKED_KEY = "jwt_revoked:";
+    private static final String REVOKED_CHANNEL = "jwt_revoked";
+
+    @Autowired
+    private JwtProperties jwtProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private Key adminKey;
+    private Key userKey;
+    private Cache<String, Claims> verified;
+    private Cache<String, Long> revoked;
+
+    @PostConstruct
+    public void init() {
+        adminKey = JwtUtil.signingKey(jwtProperties.getAdminSecretKey());
+        userKey = JwtUtil.signingKey(jwtProperties.getUserSecretKey());
+        verified = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return remainingNanos(claims.getExpiration());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return remainingNanos(claims.getExpiration());
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        //value为令牌的过期时间戳
+        revoked = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long expiration, long currentTime) {
+                        return remainingNanos(new Date(expiration));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long expiration, long currentTime, long currentDuration) {
+                        return remainingNanos(new Date(expiration));
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long expiration, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(REVOKED_CHANNEL));
+    }
+
+    /**
+     * 校验管理端令牌
+     * @param token
+     * @return
+     */
+    public Claims verifyAdmin(String token) {
+        return verify("admin:", adminKey, token);
+    }
+
+    /**
+     * 校验用户端令牌
+     * @param token
+     * @return
+     */
+    public Claims verifyUser(String token) {
+        return verify("user:", userKey, token);
+    }
+
+    /**
+     * 注销令牌，令牌过期前在所有节点上都不再校验通过
+     * 令牌本身无效时忽略
+     * @param token
+     */
+    public void revoke(String token) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        Date expiration = expirationOf(token);
+        if (expiration == null) {
+            return;
+        }
+        String hash = hash(token);
+        long ttl = expiration.getTime() - System.currentTimeMillis();
+        if (ttl <= 0) {
+            return;
+        }
+        markRevoked(hash, expiration.getTime());
+        stringRedisTemplate.opsForValue().set(REVOKED_KEY + hash, String.valueOf(expiration.getTime()), ttl, TimeUnit.MILLISECONDS);
+        stringRedisTemplate.convertAndSend(REVOKED_CHANNEL, hash + "," + expiration.getTime());
+    }
+
+    /**
+     * 收到其他节点的令牌注销通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(",");
+        if (parts.length == 2) {
+            markRevoked(parts[0], Long.parseLong(parts[1]));
+        }
+    }
+
+    private Claims verify(String scope, Key key, String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("令牌为空");
+        }
+        String hash = hash(token);
+        if (revoked.getIfPresent(hash) != null) {
+            throw new IllegalStateException("令牌已注销");
+        }
+        String cacheKey = scope + hash;
+        Claims claims = verified.getIfPresent(cacheKey);
+        if (claims != null) {
+            return claims;
+        }
+        //未命中缓存时完整校验签名和过期时间，并检查是否已在其他节点注销
+        claims = JwtUtil.parseJWT(key, token);
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(REVOKED_KEY + hash))) {
+            if (claims.getExpiration() != null) {
+                markRevoked(hash, claims.getExpiration().getTime());
+            }
+            throw new IllegalStateException("令牌已注销");
+        }
+        //没有过期时间的令牌不缓存
+        if (claims.getExpiration() != null) {
+            verified.put(cacheKey, claims);
+        }
+        return claims;
+    }
+
+    private void markRevoked(String hash, long expiration) {
+        revoked.put(hash, expiration);
+        verified.invalidate("admin:" + hash);
+        verified.invalidate("user:" + hash);
+    }
+
+    /**
+     * 解析令牌的过期时间，只接受本服务签发的令牌
+     */
+    private Date expirationOf(String token) {
+        for (Key key : new Key[]{adminKey, userKey}) {
+            try {
+                return JwtUtil.parseJWT(key, token).getExpiration();
+            } catch (ExpiredJwtException e) {
+                return null;
+            } catch (Exception e) {
+                //尝试下一个秘钥
+            }
+        }
+        return null;
+    }
+
+    private static long remainingNanos(Date expiration) {
+        if (expiration == null) {
+            return 0;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(expiration.getTime() - System.currentTimeMillis(), 0));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sky.mapper;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 增量累加某一天的汇总数据，只修改已存在的记录
+     * @param delta 各字段为增量值
+     * @return 修改的行数，当天没有记录时为0
+     */
+    int increment(DailyBusinessStats delta);
+
+    /**
+     * 为指定日期插入空的汇总记录，已存在的日期忽略
+     * @param dates
+     */
+    void insertIgnore(List<LocalDate> dates);
+
+    /**
+     * 根据orders表重新计算区间内每天的订单汇总数据
+     * @param beginTime
+     * @param endTime
+     */
+    void reconcileOrders(LocalDateTime beginTime, LocalDateTime endTime);
+
+    /**
+     * 根据user表重新计算区间内每天的新增用户数
+     * @param beginTime
+     * @param endTime
+     */
+    void reconcileUsers(LocalDateTime beginTime, LocalDateTime endTime);
+
+    /**
+     * 查询区间内每天的汇总数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<DailyStatisticsDTO> listByDate(LocalDate begin, LocalDate end);
+}
@@ -1,11 +1,14 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.dto.GoodsSalesDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,6 +39,20 @@ public interface OrderMapper {
      * @param ordersPageQueryDTO
      */
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
+
+    /**
+     * 游标分页查询，按下单时间和id倒序，读取游标之后的pageSize条记录
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    List<Orders> pageQueryByCursor(OrdersPageQueryDTO ordersPageQueryDTO);
+
+    /**
+     * 统计满足条件的订单数量，最多统计到1000条
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    Long countLimited(OrdersPageQueryDTO ordersPageQueryDTO);
     /**
      * 根据id查询订单
      * @param id
@@ -44,14 +61,62 @@ public interface OrderMapper {
     Orders getById(Long id);
 
     /**
-     * 根据状态和下单时间查询订单
+     * 订单仍处于指定状态时将其取消，用于和支付、接单等操作并发时避免覆盖
+     * @param id
+     * @param status 期望的当前状态
+     * @param cancelReason
+     * @param cancelTime
+     * @return 修改的行数，订单状态已变化时为0
+     */
+    @Update("update orders set status = 6, cancel_reason = #{cancelReason}, cancel_time = #{cancelTime} " +
+            "where id = #{id} and status = #{status}")
+    int cancelByIdAndStatus(Long id, Integer status, String cancelReason, LocalDateTime cancelTime);
+
+    /**
+     * 只有订单仍处于待付款状态时才改为已支付、待接单，避免与超时取消并发时覆盖已取消的订单
+     * @param id
+     * @param checkoutTime
+     * @return 修改的行数
      */
-    @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
-    List<Orders> getByStatusAndOrderTimeLT(Integer orderMapper, LocalDateTime time);
+    @Update("update orders set status = 2, pay_status = 1, checkout_time = #{checkoutTime} " +
+            "where id = #{id} and status = 1")
+    int paySuccessByIdAndPendingPayment(Long id, LocalDateTime checkoutTime);
+
+    /**
+     * 查询指定状态下早于给定时间的一批订单，只查询id、状态、下单时间和金额
+     * @param status
+     * @param orderTime
+     * @param limit
+     * @return
+     */
+    @Select("select id, status, order_time, amount from orders where status = #{status} and order_time < #{orderTime} limit #{limit}")
+    List<Orders> listByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime, int limit);
+
+    /**
+     * 按id批量修改订单状态，只修改仍处于fromStatus的订单
+     * @param map fromStatus、toStatus、ids，可选cancelReason、cancelTime、deliveryTime
+     * @return 本次修改的行数
+     */
+    int updateStatusByIdsAndStatus(Map map);
 
     Double sumByMap(Map map);
 
     Integer countByMap(Map map);
 
     List<GoodsSalesDTO> getSalesTop(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天分组统计订单总数、有效订单数和营业额
+     * @param map beginTime、endTime、status(有效订单状态)
+     * @return
+     */
+    List<DailyStatisticsDTO> sumAndCountGroupByDay(Map map);
+
+    /**
+     * 流式查询下单时间区间内的订单，逐行交给handler处理，不在内存中保留结果集
+     * @param beginTime
+     * @param endTime
+     * @param handler
+     */
+    void streamByOrderTime(LocalDateTime beginTime, LocalDateTime endTime, ResultHandler<Orders> handler);
 }
@@ -9,26 +9,37 @@ import java.util.List;
 public interface ShoppingCartMapper {
 
     /**
-     * 动态条件查询
-     * @param shoppingCart
+     * 查询用户的购物车，使用唯一键 (user_id, item_key) 的前缀索引
+     * @param userId
      * @return
      */
-    List<ShoppingCart> list(ShoppingCart shoppingCart);
+    @Select("select * from shopping_cart where user_id = #{userId} order by create_time")
+    List<ShoppingCart> listByUserId(Long userId);
 
     /**
-     * 根据id修改商品数量
-     * @param shoppingCart
+     * 加入购物车，商品信息从菜品或套餐表中查询，商品已存在时数量加一
+     * 依赖唯一键 (user_id, item_key)，一条语句完成，没有先查询再修改的并发问题
+     * @param shoppingCart userId、dishId、setmealId、dishFlavor、createTime
+     * @return 影响的行数，为0时说明菜品或套餐不存在
      */
-    @Update("update shopping_Cart set number = #{number} where id = #{id}")
-    void updateByNumberId(ShoppingCart shoppingCart);
+    int insertOrIncrement(ShoppingCart shoppingCart);
 
     /**
-     * 插入购物车数据
-     * @param shoppingCart
+     * 数量大于1时减一
+     * @param shoppingCart userId、dishId、setmealId、dishFlavor
+     * @return 修改的行数，为0时说明商品数量为1或不存在
      */
-    @Insert("insert into shopping_cart (name, user_id, dish_id, setmeal_id, dish_flavor,number, amount,image, create_time) " +
-            "values (#{name},#{userId},#{dishId},#{setmealId},#{dishFlavor},#{number},#{amount},#{image},#{creatTime});")
-    void insert(ShoppingCart shoppingCart);
+    @Update("update shopping_cart set number = number - 1 where user_id = #{userId} and item_key = " +
+            "concat(ifnull(#{dishId}, ''), '-', ifnull(#{setmealId}, ''), '-', ifnull(#{dishFlavor}, '')) and number > 1")
+    int decrementNumber(ShoppingCart shoppingCart);
+
+    /**
+     * 删除数量为1的商品
+     * @param shoppingCart userId、dishId、setmealId、dishFlavor
+     */
+    @Delete("delete from shopping_cart where user_id = #{userId} and item_key = " +
+            "concat(ifnull(#{dishId}, ''), '-', ifnull(#{setmealId}, ''), '-', ifnull(#{dishFlavor}, '')) and number = 1")
+    void deleteIfLast(ShoppingCart shoppingCart);
 
     @Delete("delete from shopping_cart where user_id = #{userId}")
     void deleteByUser(Long currentId);
@@ -1,9 +1,11 @@
 package com.sky.mapper;
 
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -29,4 +31,11 @@ public interface UserMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 按天分组统计新增用户数量
+     * @param map beginTime、endTime
+     * @return
+     */
+    List<DailyStatisticsDTO> countGroupByDay(Map map);
 }
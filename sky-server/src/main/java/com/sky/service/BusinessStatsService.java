@@ -0,0 +1,53 @@
+package com.sky.service;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.Orders;
+import com.sky.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public interface BusinessStatsService {
+
+    /**
+     * 新订单创建后，累加当天的汇总数据
+     * @param orders
+     */
+    void orderCreated(Orders orders);
+
+    /**
+     * 订单状态变化后，调整下单当天的汇总数据
+     * @param ordersDB 状态修改前的订单
+     * @param status   修改后的状态
+     */
+    void orderStatusChanged(Orders ordersDB, Integer status);
+
+    /**
+     * 批量修改订单状态后，按下单日期合并后调整汇总数据
+     * @param ordersList 状态修改前的订单
+     * @param status     修改后的状态
+     */
+    void ordersStatusChanged(List<Orders> ordersList, Integer status);
+
+    /**
+     * 新用户注册后，累加当天的新增用户数
+     * @param user
+     */
+    void userCreated(User user);
+
+    /**
+     * 根据订单表和用户表重新计算区间内每天的汇总数据
+     * @param begin
+     * @param end
+     */
+    void reconcile(LocalDate begin, LocalDate end);
+
+    /**
+     * 查询区间内每天的运营数据，已结束的日期读取汇总表，今天读取实时数据
+     * @param begin
+     * @param end
+     * @return key为日期，没有数据的日期不在map中
+     */
+    Map<LocalDate, DailyStatisticsDTO> getDailyStatistics(LocalDate begin, LocalDate end);
+}
@@ -0,0 +1,34 @@
+package com.sky.service;
+
+import com.sky.dto.ReportExportDTO;
+import com.sky.vo.ExportJobVO;
+import org.springframework.core.io.Resource;
+
+public interface ExportJobService {
+
+    /**
+     * 提交报表导出任务，立即返回任务id
+     * @param reportExportDTO
+     * @return
+     */
+    String submit(ReportExportDTO reportExportDTO);
+
+    /**
+     * 查询导出任务的状态和进度
+     * @param jobId
+     * @return
+     */
+    ExportJobVO getJob(String jobId);
+
+    /**
+     * 获取已完成任务的导出文件
+     * @param jobId
+     * @return
+     */
+    Resource getFile(String jobId);
+
+    /**
+     * 清理过期的导出任务和文件
+     */
+    void cleanExpired();
+}
@@ -0,0 +1,29 @@
+package com.sky.service;
+
+import com.sky.cache.MenuSnapshot;
+
+public interface MenuSnapshotService {
+
+    /**
+     * 查询分类下起售中菜品的快照
+     * @param categoryId
+     * @return
+     */
+    MenuSnapshot getDishSnapshot(Long categoryId);
+
+    /**
+     * 查询分类下起售中套餐的快照
+     * @param categoryId
+     * @return
+     */
+    MenuSnapshot getSetmealSnapshot(Long categoryId);
+
+    /**
+     * 查询完整菜单的快照，客户端传入的版本号与当前版本一致的部分不返回数据
+     * @param categoryVersion 客户端本地分类数据的版本号
+     * @param dishVersion     客户端本地菜品数据的版本号
+     * @param setmealVersion  客户端本地套餐数据的版本号
+     * @return
+     */
+    MenuSnapshot getMenuSnapshot(String categoryVersion, String dishVersion, String setmealVersion);
+}
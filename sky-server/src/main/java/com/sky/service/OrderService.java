@@ -1,7 +1,9 @@
 package com.sky.service;
 
+import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.dto.OrdersPaymentDTO;
 import com.sky.dto.OrdersSubmitDTO;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderSubmitVO;
@@ -37,6 +39,32 @@ public interface OrderService {
      * @return
      */
     PageResult pageQuery4User(int page, int pageSize, Integer status);
+
+    /**
+     * 用户端订单游标分页查询
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param pageSize
+     * @param status
+     * @param skipCount 是否跳过总数统计
+     * @return
+     */
+    CursorPageResult cursorQuery4User(String cursor, int pageSize, Integer status, boolean skipCount);
+
+    /**
+     * 管理端订单条件搜索
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO);
+
+    /**
+     * 管理端订单条件搜索，游标分页
+     * @param ordersPageQueryDTO
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param skipCount 是否跳过总数统计
+     * @return
+     */
+    CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO, String cursor, boolean skipCount);
     /**
      * 查询订单详情
      * @param id
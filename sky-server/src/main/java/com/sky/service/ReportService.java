@@ -5,8 +5,10 @@ import com.sky.vo.SalesTop10ReportVO;
 import com.sky.vo.TurnoverReportVO;
 import com.sky.vo.UserReportVO;
 
-import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.function.IntConsumer;
 
 public interface ReportService {
 
@@ -42,5 +44,23 @@ public interface ReportService {
      */
     SalesTop10ReportVO getSalesTop10(LocalDate beginTime, LocalDate endTime);
 
-    void export(HttpServletResponse response);
+    /**
+     * 导出指定日期区间的运营数据报表
+     * @param begin
+     * @param end
+     * @param withOrders 是否包含订单明细
+     * @param out
+     */
+    void export(LocalDate begin, LocalDate end, boolean withOrders, OutputStream out) throws IOException;
+
+    /**
+     * 导出指定日期区间的运营数据报表，并通过progressListener回报进度
+     * @param begin
+     * @param end
+     * @param withOrders       是否包含订单明细
+     * @param out
+     * @param progressListener 接收0-100的进度
+     */
+    void export(LocalDate begin, LocalDate end, boolean withOrders, OutputStream out,
+                IntConsumer progressListener) throws IOException;
 }
@@ -28,4 +28,10 @@ public interface ShoppingCartService {
      * @param shoppingCartDTO
      */
     void subShoppingCart(ShoppingCartDTO shoppingCartDTO);
+
+    /**
+     * 批量添加购物车，商品已存在时累加数量
+     * @param shoppingCartList
+     */
+    void addBatch(List<ShoppingCart> shoppingCartList);
 }
@@ -0,0 +1,239 @@
+package com.sky.service.impl;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.entity.User;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 每日运营数据汇总业务实现
+ */
+@Service
+@Slf4j
+public class BusinessStatsServiceImpl implements BusinessStatsService {
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 新订单创建后，累加当天的汇总数据
+     * @param orders
+     */
+    public void orderCreated(Orders orders) {
+        DailyBusinessStats delta = newDelta(orders.getOrderTime().toLocalDate());
+        delta.setTotalOrders(1);
+        addStatusCount(delta, orders.getStatus(), 1, orders.getAmount());
+        increment(delta);
+    }
+
+    /**
+     * 订单状态变化后，调整下单当天的汇总数据
+     * @param ordersDB 状态修改前的订单
+     * @param status   修改后的状态
+     */
+    public void orderStatusChanged(Orders ordersDB, Integer status) {
+        if (status == null || status.equals(ordersDB.getStatus())) {
+            return;
+        }
+        DailyBusinessStats delta = newDelta(ordersDB.getOrderTime().toLocalDate());
+        addStatusCount(delta, ordersDB.getStatus(), -1, ordersDB.getAmount());
+        addStatusCount(delta, status, 1, ordersDB.getAmount());
+        increment(delta);
+    }
+
+    /**
+     * 批量修改订单状态后，按下单日期合并后调整汇总数据，每个日期只更新一次
+     * @param ordersList 状态修改前的订单
+     * @param status     修改后的状态
+     */
+    public void ordersStatusChanged(List<Orders> ordersList, Integer status) {
+        Map<LocalDate, DailyBusinessStats> deltas = new TreeMap<>();
+        for (Orders ordersDB : ordersList) {
+            if (status == null || status.equals(ordersDB.getStatus())) {
+                continue;
+            }
+            DailyBusinessStats delta = deltas.computeIfAbsent(ordersDB.getOrderTime().toLocalDate(), this::newDelta);
+            addStatusCount(delta, ordersDB.getStatus(), -1, ordersDB.getAmount());
+            addStatusCount(delta, status, 1, ordersDB.getAmount());
+        }
+        deltas.values().forEach(this::increment);
+    }
+
+    /**
+     * 新用户注册后，累加当天的新增用户数
+     * @param user
+     */
+    public void userCreated(User user) {
+        DailyBusinessStats delta = newDelta(user.getCreateTime().toLocalDate());
+        delta.setNewUsers(1);
+        increment(delta);
+    }
+
+    /**
+     * 根据订单表和用户表重新计算区间内每天的汇总数据
+     * @param begin
+     * @param end
+     */
+    @Transactional
+    public void reconcile(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
+        //没有订单和新用户的日期也写入一条空记录，避免报表回退到实时查询
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        dailyBusinessStatsMapper.insertIgnore(dates);
+        dailyBusinessStatsMapper.reconcileOrders(beginTime, endTime);
+        dailyBusinessStatsMapper.reconcileUsers(beginTime, endTime);
+        log.info("运营数据汇总对账完成：{}至{}", begin, end);
+    }
+
+    /**
+     * 查询区间内每天的运营数据，已结束的日期读取汇总表，今天读取实时数据
+     * @param begin
+     * @param end
+     * @return key为日期，没有数据的日期不在map中
+     */
+    public Map<LocalDate, DailyStatisticsDTO> getDailyStatistics(LocalDate begin, LocalDate end) {
+        Map<LocalDate, DailyStatisticsDTO> result = new HashMap<>();
+        LocalDate today = LocalDate.now();
+
+        //已结束的日期读取汇总表
+        LocalDate closedEnd = end.isBefore(today) ? end : today.minusDays(1);
+        LocalDate missingBegin = null;
+        LocalDate missingEnd = null;
+        if (!begin.isAfter(closedEnd)) {
+            for (DailyStatisticsDTO daily : dailyBusinessStatsMapper.listByDate(begin, closedEnd)) {
+                result.put(daily.getDate(), daily);
+            }
+            //汇总表还没有覆盖的日期（例如上线前的历史数据），回退到实时查询
+            for (LocalDate date = begin; !date.isAfter(closedEnd); date = date.plusDays(1)) {
+                if (!result.containsKey(date)) {
+                    missingBegin = missingBegin == null ? date : missingBegin;
+                    missingEnd = date;
+                }
+            }
+        }
+
+        //今天以及汇总表缺失的日期读取实时数据
+        LocalDate liveBegin = missingBegin != null ? missingBegin : (begin.isAfter(today) ? begin : today);
+        LocalDate liveEnd = end.isBefore(today) ? missingEnd : end;
+        if (liveEnd != null && !liveBegin.isAfter(liveEnd)) {
+            Map<LocalDate, DailyStatisticsDTO> live = getLiveStatistics(liveBegin, liveEnd);
+            live.forEach(result::putIfAbsent);
+        }
+        return result;
+    }
+
+    /**
+     * 按天分组实时查询订单表和用户表，每个指标只查询一次数据库
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, DailyStatisticsDTO> getLiveStatistics(LocalDate begin, LocalDate end) {
+        Map map = new HashMap();
+        map.put("beginTime", LocalDateTime.of(begin, LocalTime.MIN));
+        map.put("endTime", LocalDateTime.of(end, LocalTime.MAX));
+        map.put("status", Orders.COMPLETED);
+
+        Map<LocalDate, DailyStatisticsDTO> result = new HashMap<>();
+        for (DailyStatisticsDTO daily : orderMapper.sumAndCountGroupByDay(map)) {
+            daily.setNewUsers(0);
+            result.put(daily.getDate(), daily);
+        }
+        for (DailyStatisticsDTO daily : userMapper.countGroupByDay(map)) {
+            DailyStatisticsDTO exist = result.computeIfAbsent(daily.getDate(), date -> DailyStatisticsDTO.builder()
+                    .date(date)
+                    .turnover(0.0)
+                    .orderCount(0)
+                    .validOrderCount(0)
+                    .build());
+            exist.setNewUsers(daily.getNewUsers());
+        }
+        return result;
+    }
+
+    /**
+     * 累加增量，当天还没有汇总记录时（每天第一次变化，或上线前的历史日期）不写入只有增量的记录，
+     * 而是按orders、user表重新计算这一天，此时本次变化已写入数据库，会被计算在内
+     * @param delta
+     */
+    private void increment(DailyBusinessStats delta) {
+        if (dailyBusinessStatsMapper.increment(delta) == 0) {
+            reconcile(delta.getStatsDate(), delta.getStatsDate());
+        }
+    }
+
+    /**
+     * 创建各字段都为0的增量对象
+     * @param date
+     * @return
+     */
+    private DailyBusinessStats newDelta(LocalDate date) {
+        return DailyBusinessStats.builder()
+                .statsDate(date)
+                .turnover(BigDecimal.ZERO)
+                .totalOrders(0)
+                .validOrders(0)
+                .newUsers(0)
+                .pendingPaymentCount(0)
+                .toBeConfirmedCount(0)
+                .confirmedCount(0)
+                .deliveryInProgressCount(0)
+                .completedCount(0)
+                .cancelledCount(0)
+                .updateTime(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * 按订单状态累加对应的计数，已完成订单同时累加有效订单数和营业额
+     * @param delta
+     * @param status
+     * @param count  1或-1
+     * @param amount
+     */
+    private void addStatusCount(DailyBusinessStats delta, Integer status, int count, BigDecimal amount) {
+        if (Orders.PENDING_PAYMENT.equals(status)) {
+            delta.setPendingPaymentCount(delta.getPendingPaymentCount() + count);
+        } else if (Orders.TO_BE_CONFIRMED.equals(status)) {
+            delta.setToBeConfirmedCount(delta.getToBeConfirmedCount() + count);
+        } else if (Orders.CONFIRMED.equals(status)) {
+            delta.setConfirmedCount(delta.getConfirmedCount() + count);
+        } else if (Orders.DELIVERY_IN_PROGRESS.equals(status)) {
+            delta.setDeliveryInProgressCount(delta.getDeliveryInProgressCount() + count);
+        } else if (Orders.COMPLETED.equals(status)) {
+            delta.setCompletedCount(delta.getCompletedCount() + count);
+            delta.setValidOrders(delta.getValidOrders() + count);
+            if (amount != null) {
+                delta.setTurnover(delta.getTurnover().add(amount.multiply(BigDecimal.valueOf(count))));
+            }
+        } else if (Orders.CANCELLED.equals(status)) {
+            delta.setCancelledCount(delta.getCancelledCount() + count);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.sky.service.impl;
+
+import com.sky.constant.MessageConstant;
+import com.sky.dto.ReportExportDTO;
+import com.sky.exception.ReportExportException;
+import com.sky.export.ExportStorage;
+import com.sky.properties.ExportProperties;
+import com.sky.service.ExportJobService;
+import com.sky.service.ReportService;
+import com.sky.vo.ExportJobVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * 报表导出任务业务实现
+ * 任务在有界线程池中执行，状态保存在当前节点内存中，文件交给ExportStorage保存
+ */
+@Service
+@Slf4j
+public class ExportJobServiceImpl implements ExportJobService {
+
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private ExportStorage exportStorage;
+    @Autowired
+    private ExportProperties exportProperties;
+
+    //存放导出任务，key为任务id；任务对象创建后不再修改，每次状态变化替换为新对象，查询线程总能看到最新状态
+    private final Map<String, ExportJobVO> jobMap = new ConcurrentHashMap<>();
+    //导出任务专用的线程池，不注册为bean，避免替换掉Spring默认的任务线程池
+    private ThreadPoolExecutor exportExecutor;
+
+    /**
+     * 创建有界线程池，队列满时拒绝新的导出任务，不占用请求线程
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger index = new AtomicInteger();
+        exportExecutor = new ThreadPoolExecutor(
+                exportProperties.getPoolSize(),
+                exportProperties.getPoolSize(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(exportProperties.getQueueCapacity()),
+                r -> new Thread(r, "report-export-" + index.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        exportExecutor.shutdown();
+    }
+
+    /**
+     * 提交报表导出任务，立即返回任务id
+     * @param reportExportDTO
+     * @return
+     */
+    public String submit(ReportExportDTO reportExportDTO) {
+        LocalDate endTime = reportExportDTO.getEndTime();
+        LocalDate beginTime = reportExportDTO.getBeginTime();
+        if (beginTime == null || endTime == null) {
+            endTime = LocalDate.now().minusDays(1);
+            beginTime = endTime.minusDays(29);
+        }
+        //在排队前校验日期范围，避免无效或过大的任务占用导出线程
+        if (beginTime.isAfter(endTime)) {
+            throw new ReportExportException(MessageConstant.EXPORT_RANGE_INVALID);
+        }
+        if (ChronoUnit.DAYS.between(beginTime, endTime) + 1 > exportProperties.getMaxRangeDays()) {
+            throw new ReportExportException(MessageConstant.EXPORT_RANGE_TOO_LONG);
+        }
+        String jobId = UUID.randomUUID().toString().replace("-", "");
+        ExportJobVO job = ExportJobVO.builder()
+                .jobId(jobId)
+                .status(ExportJobVO.WAITING)
+                .progress(0)
+                .beginTime(beginTime)
+                .endTime(endTime)
+                .fileName("report_" + beginTime + "_" + endTime + ".xlsx")
+                .createTime(LocalDateTime.now())
+                .build();
+        jobMap.put(jobId, job);
+
+        boolean withOrders = reportExportDTO.isWithOrders();
+        try {
+            exportExecutor.execute(() -> run(jobId, withOrders));
+        } catch (RejectedExecutionException e) {
+            jobMap.remove(jobId);
+            throw new ReportExportException(MessageConstant.EXPORT_JOB_BUSY);
+        }
+        log.info("提交报表导出任务：{}，{}至{}", jobId, beginTime, endTime);
+        return jobId;
+    }
+
+    /**
+     * 执行导出任务，把报表写入ExportStorage
+     * @param jobId
+     * @param withOrders
+     */
+    private void run(String jobId, boolean withOrders) {
+        ExportJobVO job = update(jobId, builder -> builder.status(ExportJobVO.RUNNING));
+        long start = System.currentTimeMillis();
+        try (OutputStream out = exportStorage.create(jobId)) {
+            reportService.export(job.getBeginTime(), job.getEndTime(), withOrders, out,
+                    progress -> update(jobId, builder -> builder.progress(progress)));
+        } catch (Exception e) {
+            log.error("报表导出任务失败：{}", jobId, e);
+            exportStorage.delete(jobId);
+            update(jobId, builder -> builder
+                    .errorMsg(e.getMessage())
+                    .finishTime(LocalDateTime.now())
+                    .status(ExportJobVO.FAILED));
+            return;
+        }
+        Resource file = exportStorage.load(jobId);
+        long fileSize;
+        try {
+            fileSize = file == null ? 0L : file.contentLength();
+        } catch (Exception e) {
+            fileSize = 0L;
+        }
+        long size = fileSize;
+        update(jobId, builder -> builder
+                .fileSize(size)
+                .progress(100)
+                .finishTime(LocalDateTime.now())
+                .status(ExportJobVO.SUCCESS));
+        log.info("报表导出任务完成：{}，耗时{}ms", jobId, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 以新对象替换任务，任务已被清理时返回null
+     * @param jobId
+     * @param change
+     * @return
+     */
+    private ExportJobVO update(String jobId, UnaryOperator<ExportJobVO.ExportJobVOBuilder> change) {
+        return jobMap.computeIfPresent(jobId, (k, job) -> change.apply(job.toBuilder()).build());
+    }
+
+    /**
+     * 查询导出任务的状态和进度
+     * @param jobId
+     * @return
+     */
+    public ExportJobVO getJob(String jobId) {
+        ExportJobVO job = jobMap.get(jobId);
+        if (job == null) {
+            throw new ReportExportException(MessageConstant.EXPORT_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    /**
+     * 获取已完成任务的导出文件
+     * @param jobId
+     * @return
+     */
+    public Resource getFile(String jobId) {
+        ExportJobVO job = getJob(jobId);
+        if (!ExportJobVO.SUCCESS.equals(job.getStatus())) {
+            throw new ReportExportException(MessageConstant.EXPORT_JOB_NOT_FINISHED);
+        }
+        Resource file = exportStorage.load(jobId);
+        if (file == null) {
+            throw new ReportExportException(MessageConstant.EXPORT_JOB_NOT_FOUND);
+        }
+        return file;
+    }
+
+    /**
+     * 清理过期的导出任务和文件
+     */
+    public void cleanExpired() {
+        LocalDateTime expireTime = LocalDateTime.now().minusHours(exportProperties.getRetentionHours());
+        jobMap.values().removeIf(job -> {
+            boolean expired = job.getFinishTime() != null && job.getFinishTime().isBefore(expireTime);
+            if (expired) {
+                exportStorage.delete(job.getJobId());
+            }
+            return expired;
+        });
+    }
+}
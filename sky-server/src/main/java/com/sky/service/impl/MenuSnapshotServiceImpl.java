@@ -0,0 +1,134 @@
+package com.sky.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.cache.MenuSection;
+import com.sky.cache.MenuSnapshot;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.result.Result;
+import com.sky.service.CategoryService;
+import com.sky.service.DishService;
+import com.sky.service.MenuSnapshotService;
+import com.sky.service.SetmealService;
+import com.sky.vo.MenuVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 菜单快照，查询结果按响应格式预先序列化后放入缓存，只在管理端修改分类、菜品、套餐后重新生成
+ */
+@Service
+@Slf4j
+public class MenuSnapshotServiceImpl implements MenuSnapshotService {
+
+    //与消息转换器使用相同的序列化规则
+    private static final ObjectMapper OBJECT_MAPPER = new JacksonObjectMapper();
+    //完整菜单及其各部分的缓存
+    private static final String MENU_CACHE = "menuSnapshot";
+
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * 查询分类下起售中菜品的快照
+     * @param categoryId
+     * @return
+     */
+    @Cacheable(cacheNames = "dishSnapshot", key = "#categoryId", sync = true) //key: dishSnapshot::v版本号::100
+    public MenuSnapshot getDishSnapshot(Long categoryId) {
+        Dish dish = new Dish();
+        dish.setCategoryId(categoryId);
+        dish.setStatus(StatusConstant.ENABLE);
+        log.info("生成菜品快照，分类id：{}", categoryId);
+        return toSnapshot(Result.success(dishService.listWithFlavor(dish)));
+    }
+
+    /**
+     * 查询分类下起售中套餐的快照
+     * @param categoryId
+     * @return
+     */
+    @Cacheable(cacheNames = "setmealSnapshot", key = "#categoryId", sync = true) //key: setmealSnapshot::v版本号::100
+    public MenuSnapshot getSetmealSnapshot(Long categoryId) {
+        Setmeal setmeal = new Setmeal();
+        setmeal.setCategoryId(categoryId);
+        setmeal.setStatus(StatusConstant.ENABLE);
+        log.info("生成套餐快照，分类id：{}", categoryId);
+        return toSnapshot(Result.success(setmealService.list(setmeal)));
+    }
+
+    /**
+     * 查询完整菜单的快照，客户端传入的版本号与当前版本一致的部分不返回数据
+     * 各部分和组装好的快照都放在menuSnapshot缓存中，管理端修改数据时整个缓存被清空；
+     * 快照的key由各部分的当前版本号和省略了哪些部分组成，每个版本最多生成8种快照，重复请求直接返回缓存的快照
+     * @param categoryVersion 客户端本地分类数据的版本号
+     * @param dishVersion     客户端本地菜品数据的版本号
+     * @param setmealVersion  客户端本地套餐数据的版本号
+     * @return
+     */
+    public MenuSnapshot getMenuSnapshot(String categoryVersion, String dishVersion, String setmealVersion) {
+        Cache cache = cacheManager.getCache(MENU_CACHE);
+        MenuSection categories = cache.get("category", () -> toSection(categoryService.list(null)));
+        MenuSection dishes = cache.get("dish", () -> {
+            Dish dish = new Dish();
+            dish.setStatus(StatusConstant.ENABLE);
+            return toSection(dishService.listWithFlavor(dish));
+        });
+        MenuSection setmeals = cache.get("setmeal", () -> {
+            Setmeal setmeal = new Setmeal();
+            setmeal.setStatus(StatusConstant.ENABLE);
+            return toSection(setmealService.list(setmeal));
+        });
+
+        boolean omitCategories = categories.getVersion().equals(categoryVersion);
+        boolean omitDishes = dishes.getVersion().equals(dishVersion);
+        boolean omitSetmeals = setmeals.getVersion().equals(setmealVersion);
+        //key: menuSnapshot::v版本号::menu:分类版本:菜品版本:套餐版本:省略的部分
+        String key = "menu:" + categories.getVersion() + ":" + dishes.getVersion() + ":" + setmeals.getVersion()
+                + ":" + (omitCategories ? "c" : "") + (omitDishes ? "d" : "") + (omitSetmeals ? "s" : "");
+        return cache.get(key, () -> {
+            log.info("生成菜单快照：{}", key);
+            return toSnapshot(Result.success(MenuVO.builder()
+                    .categoryVersion(categories.getVersion())
+                    .categories(omitCategories ? null : categories.getJson())
+                    .dishVersion(dishes.getVersion())
+                    .dishes(omitDishes ? null : dishes.getJson())
+                    .setmealVersion(setmeals.getVersion())
+                    .setmeals(omitSetmeals ? null : setmeals.getJson())
+                    .build()));
+        });
+    }
+
+    private MenuSection toSection(Object data) {
+        try {
+            byte[] json = OBJECT_MAPPER.writeValueAsBytes(data);
+            return new MenuSection(DigestUtils.md5DigestAsHex(json), new String(json, StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("菜单数据序列化失败", e);
+        }
+    }
+
+    private MenuSnapshot toSnapshot(Result<?> result) {
+        try {
+            return MenuSnapshot.of(OBJECT_MAPPER.writeValueAsBytes(result));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("菜单快照序列化失败", e);
+        }
+    }
+}
@@ -13,13 +13,21 @@ import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.OrderService;
+import com.sky.service.ShoppingCartService;
+import com.sky.task.OrderTimeoutScheduler;
+import com.sky.utils.OrderCursor;
+import com.sky.utils.OrderNumberGenerator;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
-import com.sky.websocket.WebSocketServer;
+import com.sky.websocket.WebSocketRelay;
+import com.sky.websocket.WebSocketTopic;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -34,8 +42,12 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    //游标分页每页最多返回的记录数
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
@@ -43,11 +55,19 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private AddressBookMapper addressBookMapper;
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartService shoppingCartService;
     @Autowired
     private WeChatPayUtil weChatPayUtil;
     @Autowired
+    private WebSocketRelay webSocketRelay;
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    @Autowired
     private UserMapper userMapper;
+    @Autowired
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private OrderTimeoutScheduler orderTimeoutScheduler;
     /**
      * 用户下单
      *
@@ -64,10 +84,8 @@ public class OrderServiceImpl implements OrderService {
         }
         //获取购物车数据
         Long currentId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = new ShoppingCart();
-        shoppingCart.setUserId(currentId);
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
-        if (shoppingCartList == null && shoppingCartList.size() == 0) {
+        List<ShoppingCart> shoppingCartList = shoppingCartService.showShoppingCart();
+        if (shoppingCartList == null || shoppingCartList.size() == 0) {
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
         //向订单插入一条数据
@@ -75,12 +93,16 @@ public class OrderServiceImpl implements OrderService {
         BeanUtils.copyProperties(ordersSubmitDTO, orders);
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
-        orders.setPayStatus(Orders.PENDING_PAYMENT);
+        orders.setStatus(Orders.PENDING_PAYMENT);
         orders.setPhone(addressBook.getPhone());
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        orders.setNumber(orderNumberGenerator.nextNumber());
         orders.setConsignee(addressBook.getConsignee());
         orders.setUserId(currentId);
         orderMapper.insert(orders);
+        //累加当天的运营数据汇总
+        businessStatsService.orderCreated(orders);
+        //登记支付超时取消任务，事务提交后生效
+        orderTimeoutScheduler.schedule(orders);
         //像订单明细表插入n条数据
         List<OrderDetail> orderDetailList = new ArrayList<>();
         for(ShoppingCart cart : shoppingCartList) {
@@ -91,7 +113,7 @@ public class OrderServiceImpl implements OrderService {
         }
         orderDetailMapper.insertBatch(orderDetailList);
         //清空当前用户的购物车数据
-        shoppingCartMapper.deleteByUser(currentId);
+        shoppingCartService.cleanShoppingCart();
         //封装vo返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
                 .id(orders.getId())
@@ -136,6 +158,7 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param outTradeNo
      */
+    @Transactional
     public void paySuccess(String outTradeNo) {
 
         // 当前登录用户id
@@ -143,15 +166,33 @@ public class OrderServiceImpl implements OrderService {
         // 根据订单号查询订单
         Orders ordersDB = orderMapper.getByNumberAndUserId(outTradeNo,userId);
 
-        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
-        Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
-                .payStatus(Orders.PAID)
-                .checkoutTime(LocalDateTime.now())
-                .build();
+        if (ordersDB == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
 
-        orderMapper.update(orders);
+        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间，只修改仍待付款的订单
+        int rows = orderMapper.paySuccessByIdAndPendingPayment(ordersDB.getId(), LocalDateTime.now());
+        if (rows == 0) {
+            Orders current = orderMapper.getById(ordersDB.getId());
+            if (Orders.CANCELLED.equals(current.getStatus())) {
+                //订单已超时取消后才收到支付结果，需要人工退款
+                log.error("订单已取消但收到支付成功通知，需要退款：{}", outTradeNo);
+            } else {
+                //重复的支付回调
+                log.info("订单不是待付款状态，忽略支付成功通知：{}，状态：{}", outTradeNo, current.getStatus());
+            }
+            return;
+        }
+        businessStatsService.orderStatusChanged(ordersDB, Orders.TO_BE_CONFIRMED);
+        //已支付，撤销超时取消任务
+        orderTimeoutScheduler.cancel(ordersDB.getId());
+
+        //通过websocket向管理端和关注该订单的客户端推送来单提醒
+        Map map = new HashMap();
+        map.put("type", 1);
+        map.put("orderId", ordersDB.getId());
+        map.put("content", "订单号：" + outTradeNo);
+        webSocketRelay.sendToTopics(JSONObject.toJSONString(map), WebSocketTopic.ADMIN, WebSocketTopic.order(ordersDB.getId()));
     }
 
     /**
@@ -173,24 +214,117 @@ public class OrderServiceImpl implements OrderService {
         // 分页条件查询
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
 
-        List<OrderVO> list = new ArrayList();
+        // 批量查询出订单明细，并封装入OrderVO进行响应
+        List<OrderVO> list = getOrderVOList(page);
+        return new PageResult(page.getTotal(), list);
+    }
+
+    /**
+     * 用户端订单游标分页查询
+     *
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param pageSize
+     * @param status
+     * @param skipCount 是否跳过总数统计
+     * @return
+     */
+    public CursorPageResult cursorQuery4User(String cursor, int pageSize, Integer status, boolean skipCount) {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setUserId(BaseContext.getCurrentId());
+        ordersPageQueryDTO.setStatus(status);
+        ordersPageQueryDTO.setPageSize(pageSize);
+        return cursorQuery(ordersPageQueryDTO, cursor, skipCount);
+    }
+
+    /**
+     * 管理端订单条件搜索
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    public PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO) {
+        PageHelper.startPage(ordersPageQueryDTO.getPage(), ordersPageQueryDTO.getPageSize());
+
+        Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
+
+        // 批量查询出订单明细，并封装入OrderVO进行响应
+        List<OrderVO> list = getOrderVOList(page);
+        return new PageResult(page.getTotal(), list);
+    }
+
+    /**
+     * 管理端订单条件搜索，游标分页
+     *
+     * @param ordersPageQueryDTO
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param skipCount 是否跳过总数统计
+     * @return
+     */
+    public CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO, String cursor, boolean skipCount) {
+        return cursorQuery(ordersPageQueryDTO, cursor, skipCount);
+    }
+
+    /**
+     * 按 (下单时间, id) 倒序的游标分页查询，多查一条用于判断是否还有下一页
+     *
+     * @param ordersPageQueryDTO
+     * @param cursor
+     * @param skipCount
+     * @return
+     */
+    private CursorPageResult cursorQuery(OrdersPageQueryDTO ordersPageQueryDTO, String cursor, boolean skipCount) {
+        int pageSize = ordersPageQueryDTO.getPageSize() <= 0 ? 10 : Math.min(ordersPageQueryDTO.getPageSize(), MAX_CURSOR_PAGE_SIZE);
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        if (!firstPage) {
+            OrderCursor orderCursor = OrderCursor.decode(cursor);
+            ordersPageQueryDTO.setCursorTime(orderCursor.getOrderTime());
+            ordersPageQueryDTO.setCursorId(orderCursor.getId());
+        }
+
+        // 只有第一页统计近似总数，翻页时不再count
+        Long total = null;
+        if (firstPage && !skipCount) {
+            total = orderMapper.countLimited(ordersPageQueryDTO);
+        }
+
+        ordersPageQueryDTO.setPageSize(pageSize + 1);
+        List<Orders> ordersList = orderMapper.pageQueryByCursor(ordersPageQueryDTO);
+        boolean hasMore = ordersList.size() > pageSize;
+        if (hasMore) {
+            ordersList = ordersList.subList(0, pageSize);
+        }
 
-        // 查询出订单明细，并封装入OrderVO进行响应
-        if (page != null && page.getTotal() > 0) {
-            for (Orders orders : page) {
-                Long orderId = orders.getId();// 订单id
+        String nextCursor = null;
+        if (hasMore) {
+            Orders last = ordersList.get(ordersList.size() - 1);
+            nextCursor = OrderCursor.encode(last.getOrderTime(), last.getId());
+        }
+        return new CursorPageResult(getOrderVOList(ordersList), nextCursor, hasMore, total);
+    }
 
-                // 查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orderId);
+    /**
+     * 一次批量查询出这些订单的明细，按订单id分组后封装为OrderVO
+     *
+     * @param ordersList
+     * @return
+     */
+    private List<OrderVO> getOrderVOList(List<Orders> ordersList) {
+        List<OrderVO> list = new ArrayList<>();
+        if (ordersList == null || ordersList.isEmpty()) {
+            return list;
+        }
 
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(orders, orderVO);
-                orderVO.setOrderDetailList(orderDetails);
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        Map<Long, List<OrderDetail>> orderDetailMap = orderDetailMapper.getByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
 
-                list.add(orderVO);
-            }
+        for (Orders orders : ordersList) {
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(orders, orderVO);
+            orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
+            list.add(orderVO);
         }
-        return new PageResult(page.getTotal(), list);
+        return list;
     }
 
     /**
@@ -219,6 +353,7 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void userCancelById(Long id) {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getById(id);
@@ -254,6 +389,8 @@ public class OrderServiceImpl implements OrderService {
         orders.setCancelReason("用户取消");
         orders.setCancelTime(LocalDateTime.now());
         orderMapper.update(orders);
+        businessStatsService.orderStatusChanged(ordersDB, orders.getStatus());
+        orderTimeoutScheduler.cancel(ordersDB.getId());
     }
     /**
      * 再来一单
@@ -280,7 +417,7 @@ public class OrderServiceImpl implements OrderService {
         }).collect(Collectors.toList());
 
         // 将购物车对象批量添加到数据库
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        shoppingCartService.addBatch(shoppingCartList);
     }
 
     /**
@@ -299,6 +436,6 @@ public class OrderServiceImpl implements OrderService {
         map.put("orderId",id);
         map.put("content","您的订单已催单，请尽快处理" + byId.getNumber());
         //通过websocket向客户端浏览器推送
-        WebSocketServer.sendToAllClient(JSONObject.toJSONString(map));
+        webSocketRelay.sendToTopics(JSONObject.toJSONString(map), WebSocketTopic.ADMIN, WebSocketTopic.order(id));
     }
 }
\ No newline at end of file
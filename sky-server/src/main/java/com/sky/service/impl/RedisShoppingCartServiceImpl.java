@@ -0,0 +1,198 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.constant.MessageConstant;
+import com.sky.context.BaseContext;
+import com.sky.dto.ShoppingCartDTO;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.ShoppingCartBusinessException;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.properties.ShoppingCartProperties;
+import com.sky.service.ShoppingCartService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车保存在redis中，每个用户两个hash：
+ * shopping_cart:用户id:qty  商品 -> 数量，通过HINCRBY原子增减，连续点击不会产生重复数据
+ * shopping_cart:用户id:item 商品 -> 名称、图片、单价等信息的json，商品第一次加入时先于数量写入
+ * 商品的field为 d菜品id:口味 或 s套餐id；下单时购物车内容写入订单明细后清空
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "sky.shopping-cart.store", havingValue = "redis")
+public class RedisShoppingCartServiceImpl implements ShoppingCartService {
+
+    private static final String KEY_PREFIX = "shopping_cart:";
+
+    //数量减一，减到0时删除商品
+    private static final RedisScript<Long> SUB_SCRIPT = new DefaultRedisScript<>(
+            "local n = redis.call('hincrby', KEYS[1], ARGV[1], -1) " +
+            "if n <= 0 then redis.call('hdel', KEYS[1], ARGV[1]) redis.call('hdel', KEYS[2], ARGV[1]) end " +
+            "return n", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private ShoppingCartProperties shoppingCartProperties;
+
+    /**
+     * 添加购物车
+     * @param shoppingCartDTO
+     */
+    @Override
+    public void addShoppingCart(ShoppingCartDTO shoppingCartDTO) {
+        Long userId = BaseContext.getCurrentId();
+        String field = field(shoppingCartDTO.getDishId(), shoppingCartDTO.getSetmealId(), shoppingCartDTO.getDishFlavor());
+
+        //先写入商品信息再增加数量，保证有数量的商品一定有商品信息
+        if (!stringRedisTemplate.opsForHash().hasKey(itemKey(userId), field)) {
+            //第一次加入，查询商品信息
+            ShoppingCart shoppingCart = ShoppingCart.builder()
+                    .userId(userId)
+                    .dishId(shoppingCartDTO.getDishId())
+                    .setmealId(shoppingCartDTO.getSetmealId())
+                    .dishFlavor(shoppingCartDTO.getDishFlavor())
+                    .createTime(LocalDateTime.now())
+                    .build();
+            if (shoppingCartDTO.getDishId() != null) {
+                Dish dish = dishMapper.getById(shoppingCartDTO.getDishId());
+                if (dish == null) {
+                    throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+                }
+                shoppingCart.setName(dish.getName());
+                shoppingCart.setImage(dish.getImage());
+                shoppingCart.setAmount(dish.getPrice());
+            } else {
+                Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
+                if (setmeal == null) {
+                    throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+                }
+                shoppingCart.setName(setmeal.getName());
+                shoppingCart.setImage(setmeal.getImage());
+                shoppingCart.setAmount(setmeal.getPrice());
+            }
+            stringRedisTemplate.opsForHash().putIfAbsent(itemKey(userId), field, JSON.toJSONString(shoppingCart));
+        }
+        stringRedisTemplate.opsForHash().increment(qtyKey(userId), field, 1);
+        expire(userId);
+    }
+
+    /**
+     * 查看购物车
+     * @return
+     */
+    @Override
+    public List<ShoppingCart> showShoppingCart() {
+        Long userId = BaseContext.getCurrentId();
+        Map<Object, Object> quantities = stringRedisTemplate.opsForHash().entries(qtyKey(userId));
+        if (quantities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Object, Object> items = stringRedisTemplate.opsForHash().entries(itemKey(userId));
+
+        List<ShoppingCart> list = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : quantities.entrySet()) {
+            Object item = items.get(entry.getKey());
+            int number = Integer.parseInt(entry.getValue().toString());
+            //商品信息缺失或数量已减为0的跳过
+            if (item == null || number <= 0) {
+                continue;
+            }
+            ShoppingCart shoppingCart = JSON.parseObject(item.toString(), ShoppingCart.class);
+            shoppingCart.setNumber(number);
+            list.add(shoppingCart);
+        }
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime));
+        return list;
+    }
+
+    /**
+     * 清空购物车，存在事务时（例如下单）在事务提交后清空
+     */
+    @Override
+    public void cleanShoppingCart() {
+        Long userId = BaseContext.getCurrentId();
+        List<String> keys = Arrays.asList(qtyKey(userId), itemKey(userId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stringRedisTemplate.delete(keys);
+                }
+            });
+        } else {
+            stringRedisTemplate.delete(keys);
+        }
+    }
+
+    /**
+     * 删除购物车中一个商品
+     * @param shoppingCartDTO
+     */
+    @Override
+    public void subShoppingCart(ShoppingCartDTO shoppingCartDTO) {
+        Long userId = BaseContext.getCurrentId();
+        String field = field(shoppingCartDTO.getDishId(), shoppingCartDTO.getSetmealId(), shoppingCartDTO.getDishFlavor());
+        stringRedisTemplate.execute(SUB_SCRIPT, Arrays.asList(qtyKey(userId), itemKey(userId)), field);
+        expire(userId);
+    }
+
+    /**
+     * 批量添加购物车
+     * @param shoppingCartList
+     */
+    @Override
+    public void addBatch(List<ShoppingCart> shoppingCartList) {
+        for (ShoppingCart shoppingCart : shoppingCartList) {
+            Long userId = shoppingCart.getUserId();
+            String field = field(shoppingCart.getDishId(), shoppingCart.getSetmealId(), shoppingCart.getDishFlavor());
+            stringRedisTemplate.opsForHash().putIfAbsent(itemKey(userId), field, JSON.toJSONString(shoppingCart));
+            stringRedisTemplate.opsForHash().increment(qtyKey(userId), field, shoppingCart.getNumber());
+            expire(userId);
+        }
+    }
+
+    private void expire(Long userId) {
+        Duration ttl = Duration.ofDays(shoppingCartProperties.getTtlDays());
+        stringRedisTemplate.expire(qtyKey(userId), ttl);
+        stringRedisTemplate.expire(itemKey(userId), ttl);
+    }
+
+    private String field(Long dishId, Long setmealId, String dishFlavor) {
+        if (dishId != null) {
+            return "d" + dishId + ":" + (dishFlavor == null ? "" : dishFlavor);
+        }
+        return "s" + setmealId;
+    }
+
+    private String qtyKey(Long userId) {
+        return KEY_PREFIX + userId + ":qty";
+    }
+
+    private String itemKey(Long userId) {
+        return KEY_PREFIX + userId + ":item";
+    }
+}
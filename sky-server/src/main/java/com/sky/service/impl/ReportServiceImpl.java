@@ -1,23 +1,30 @@
 package com.sky.service.impl;
 
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.dto.GoodsSalesDTO;
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.ReportService;
-import com.sky.service.WorkspaceService;
 import com.sky.vo.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import javax.servlet.ServletOutputStream;
-import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -25,18 +32,31 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class ReportServiceImpl implements ReportService {
 
+    //运营数据报表模板
+    private static final String EXPORT_TEMPLATE = "template/运营数据报表模板.xlsx";
+    //模板中明细数据的起始行
+    private static final int DETAIL_FIRST_ROW = 7;
+    //SXSSF在内存中保留的行数
+    private static final int ROW_WINDOW = 100;
+    //订单明细单个sheet的最大行数，超出后写入新的sheet
+    private static final int ORDER_SHEET_MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final String ORDER_SHEET_NAME = "订单明细";
+    private static final String[] ORDER_SHEET_TITLES = {"订单号", "下单时间", "订单状态", "实收金额", "收货人", "手机号", "地址"};
+    private static final String[] ORDER_STATUS_NAMES = {"待付款", "待接单", "已接单", "派送中", "已完成", "已取消"};
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
     private UserMapper userMapper;
     @Autowired
-    private WorkspaceService workspaceService;
+    private BusinessStatsService businessStatsService;
 
     /**
      * 统计指定时间内的营业额数据
@@ -47,24 +67,14 @@ public class ReportServiceImpl implements ReportService {
     @Override
     public TurnoverReportVO getTurnoverStatistics(LocalDate beginTime, LocalDate endTime) {
         //当前集合用于存放begin到end范围内的每天日期
-        List<LocalDate> dataList = new ArrayList<>();
-        dataList.add(beginTime);
-        while (!dataList.equals(endTime)) {
-            beginTime = beginTime.plusDays(1);
-            dataList.add(beginTime);
-        }
-        //存放每天营业额
+        List<LocalDate> dataList = getDateList(beginTime, endTime);
+        //已结束的日期读取每日汇总表，今天按天分组实时查询
+        Map<LocalDate, DailyStatisticsDTO> dailyMap = businessStatsService.getDailyStatistics(beginTime, endTime);
+        //存放每天营业额，没有订单的日期补0
         List<Double> turnoverList = new ArrayList<>();
-        for(LocalDate date : dataList) {
-            LocalDateTime begin = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime end = LocalDateTime.of(date, LocalTime.MAX);
-            Map map = new HashMap();
-            map.put("beginTime", begin);
-            map.put("endTime", end);
-            map.put("status", Orders.COMPLETED);
-            Double tunover = orderMapper.sumByMap(map);
-            tunover = tunover == null ? 0 : tunover;
-            turnoverList.add(tunover);
+        for (LocalDate date : dataList) {
+            DailyStatisticsDTO daily = dailyMap.get(date);
+            turnoverList.add(daily == null || daily.getTurnover() == null ? 0.0 : daily.getTurnover());
         }
         return TurnoverReportVO.builder()
                 .dateList(StringUtils.join(dataList,","))
@@ -80,28 +90,25 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public UserReportVO getUserStatistics(LocalDate beginTime, LocalDate endTime) {
-        List<LocalDate> dataList = new ArrayList<>();
-        dataList.add(beginTime);
-        while (!dataList.equals(endTime)) {
-            beginTime = beginTime.plusDays(1);
-            dataList.add(beginTime);
-        }
+        List<LocalDate> dataList = getDateList(beginTime, endTime);
+        //已结束的日期读取每日汇总表，今天按天分组实时查询
+        Map<LocalDate, DailyStatisticsDTO> dailyMap = businessStatsService.getDailyStatistics(beginTime, endTime);
+
+        //开始日期之前的用户总量，作为累加的起点
+        Map map = new HashMap();
+        map.put("endTime", LocalDateTime.of(beginTime, LocalTime.MIN).minusNanos(1));
+        Integer totalUser = userMapper.countByMap(map);
+        totalUser = totalUser == null ? 0 : totalUser;
+
         //存放每天新增用户的数量
         List<Integer> newUserList = new ArrayList<>();
         //存放每天总用户的数量
         List<Integer> totalUserList = new ArrayList<>();
 
         for (LocalDate date : dataList) {
-            LocalDateTime begin = LocalDateTime.of(date,LocalTime.MIN);
-            LocalDateTime end = LocalDateTime.of(date,LocalTime.MAX);
-
-            Map map = new HashMap();
-            map.put("endTime",end);
-            //总用户数量
-            Integer totalUser = userMapper.countByMap(map);
-            map.put("beginTime",begin);
-            //新增用户数量
-            Integer newUser = userMapper.countByMap(map);
+            DailyStatisticsDTO daily = dailyMap.get(date);
+            Integer newUser = daily == null || daily.getNewUsers() == null ? 0 : daily.getNewUsers();
+            totalUser += newUser;
 
             totalUserList.add(totalUser);
             newUserList.add(newUser);
@@ -121,31 +128,23 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public OrderReportVO getOrderStatistics(LocalDate beginTime, LocalDate endTime) {
-        List<LocalDate> dataList = new ArrayList<>();
-        dataList.add(beginTime);
-        while (!dataList.equals(endTime)) {
-            beginTime = beginTime.plusDays(1);
-            dataList.add(beginTime);
-        }
-        //遍历dataList集合查询每天的有效订单数量和订单总数
+        List<LocalDate> dataList = getDateList(beginTime, endTime);
+        //已结束的日期读取每日汇总表，今天按天分组实时查询
+        Map<LocalDate, DailyStatisticsDTO> dailyMap = businessStatsService.getDailyStatistics(beginTime, endTime);
+        //遍历dataList集合组装每天的有效订单数量和订单总数，没有订单的日期补0
         List<Integer> orderCountList = new ArrayList<>();
         List<Integer> validOrderCountList = new ArrayList<>();
-        for (LocalDate date :dataList) {
-            //存放每天的订单总数
-            LocalDateTime begin = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime end = LocalDateTime.of(date, LocalTime.MAX);
-            Integer orderCount = countByMap(begin, end, null);
-            //存放每天有效的订单数，status
-            Integer ValidOrderCount = countByMap(begin, end, Orders.COMPLETED);
-            orderCountList.add(orderCount);
-            validOrderCountList.add(ValidOrderCount);
+        for (LocalDate date : dataList) {
+            DailyStatisticsDTO daily = dailyMap.get(date);
+            orderCountList.add(daily == null || daily.getOrderCount() == null ? 0 : daily.getOrderCount());
+            validOrderCountList.add(daily == null || daily.getValidOrderCount() == null ? 0 : daily.getValidOrderCount());
         }
-        Integer totalOrderCount = orderCountList.stream().reduce(Integer::sum).get();
-        Integer validOrderCount = validOrderCountList.stream().reduce(Integer::sum).get();
+        Integer totalOrderCount = orderCountList.stream().reduce(0, Integer::sum);
+        Integer validOrderCount = validOrderCountList.stream().reduce(0, Integer::sum);
 
         Double orderCompletionRate = 0.0;
-        if (validOrderCount != null) {
-            orderCompletionRate = (double) validOrderCount / totalOrderCount;
+        if (totalOrderCount != 0) {
+            orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
         }
 
         return OrderReportVO.builder()
@@ -154,16 +153,22 @@ public class ReportServiceImpl implements ReportService {
                 .validOrderCountList(StringUtils.join(validOrderCountList,","))
                 .totalOrderCount(totalOrderCount)
                 .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
                 .build();
     }
 
-    private Integer countByMap(LocalDateTime begin, LocalDateTime end, Integer status) {
-        Map map = new HashMap();
-        map.put("beginTime", begin);
-        map.put("endTime", end);
-        map.put("status", status);
-        return orderMapper.countByMap(map);
-
+    /**
+     * 生成begin到end范围内（包含两端）的每天日期
+     * @param beginTime
+     * @param endTime
+     * @return
+     */
+    private List<LocalDate> getDateList(LocalDate beginTime, LocalDate endTime) {
+        List<LocalDate> dataList = new ArrayList<>();
+        for (LocalDate date = beginTime; !date.isAfter(endTime); date = date.plusDays(1)) {
+            dataList.add(date);
+        }
+        return dataList;
     }
 
     /**
@@ -189,66 +194,207 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 导出运营数据报表
-     * @param response
+     * 导出指定日期区间的运营数据报表
+     * 明细行通过SXSSF流式写出，内存中只保留最近ROW_WINDOW行，其余行写入临时文件
+     * @param dateBegin
+     * @param dateEnd
+     * @param withOrders 是否追加订单明细sheet
+     * @param out
+     */
+    @Override
+    public void export(LocalDate dateBegin, LocalDate dateEnd, boolean withOrders, OutputStream out) throws IOException {
+        export(dateBegin, dateEnd, withOrders, out, progress -> {});
+    }
+
+    /**
+     * 导出指定日期区间的运营数据报表，并通过progressListener回报进度
+     * @param dateBegin
+     * @param dateEnd
+     * @param withOrders       是否追加订单明细sheet
+     * @param out
+     * @param progressListener 接收0-100的进度
      */
     @Override
-    public void export(HttpServletResponse response) {
-        //1.查询数据库，获取运营数据
-        LocalDate dateBegin = LocalDate.now().minusDays(30);//今天减30天
-        LocalDate dateEnd = LocalDate.now().minusDays(1);//今天减1天
-        LocalDateTime localDateTimeBegin = LocalDateTime.of(dateBegin, LocalTime.MIN);
-        LocalDateTime localDateTimeEnd = LocalDateTime.of(dateEnd, LocalTime.MAX);
-        BusinessDataVO businessDataVO = workspaceService.getBusinessData(localDateTimeBegin, localDateTimeEnd);
-        //2.通过poi将数据库写入到excel文件中
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
+    public void export(LocalDate dateBegin, LocalDate dateEnd, boolean withOrders, OutputStream out,
+                       IntConsumer progressListener) throws IOException {
+        //1.一次查询出区间内每天的运营数据
+        Map<LocalDate, DailyStatisticsDTO> dailyMap = businessStatsService.getDailyStatistics(dateBegin, dateEnd);
+        List<LocalDate> dateList = getDateList(dateBegin, dateEnd);
+        List<BusinessDataVO> businessDataList = new ArrayList<>(dateList.size());
+        DailyStatisticsDTO total = DailyStatisticsDTO.builder().turnover(0.0).orderCount(0).validOrderCount(0).newUsers(0).build();
+        for (LocalDate date : dateList) {
+            DailyStatisticsDTO daily = dailyMap.get(date);
+            if (daily != null) {
+                total.setTurnover(total.getTurnover() + (daily.getTurnover() == null ? 0.0 : daily.getTurnover()));
+                total.setOrderCount(total.getOrderCount() + (daily.getOrderCount() == null ? 0 : daily.getOrderCount()));
+                total.setValidOrderCount(total.getValidOrderCount() + (daily.getValidOrderCount() == null ? 0 : daily.getValidOrderCount()));
+                total.setNewUsers(total.getNewUsers() + (daily.getNewUsers() == null ? 0 : daily.getNewUsers()));
+            }
+            businessDataList.add(toBusinessData(daily));
+        }
+        BusinessDataVO businessDataVO = toBusinessData(total);
+        progressListener.accept(10);
+
+        //2.基于模板文件填充概览数据，并移除模板中预置的明细行
+        XSSFWorkbook template;
+        try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(EXPORT_TEMPLATE)) {
+            template = new XSSFWorkbook(in);
+        }
+        XSSFSheet templateSheet = template.getSheet("Sheet1");
+
+        //填充数据--时间
+        templateSheet.getRow(1).getCell(1).setCellValue("时间：" + dateBegin + "至" + dateEnd);
+
+        //获得第4行
+        XSSFRow row = templateSheet.getRow(3);
+        row.getCell(2).setCellValue(businessDataVO.getTurnover());
+        row.getCell(4).setCellValue(businessDataVO.getOrderCompletionRate());
+        row.getCell(6).setCellValue(businessDataVO.getNewUsers());
+
+        //获得第5行
+        row = templateSheet.getRow(4);
+        row.getCell(2).setCellValue(businessDataVO.getValidOrderCount());
+        row.getCell(4).setCellValue(businessDataVO.getUnitPrice());
+
+        //记录明细行的单元格样式后移除预置行，明细行改为流式追加
+        CellStyle[] detailStyles = new CellStyle[7];
+        XSSFRow styleRow = templateSheet.getRow(DETAIL_FIRST_ROW);
+        for (int i = 1; i <= 6; i++) {
+            detailStyles[i] = styleRow.getCell(i).getCellStyle();
+        }
+        for (int i = templateSheet.getLastRowNum(); i >= DETAIL_FIRST_ROW; i--) {
+            XSSFRow templateRow = templateSheet.getRow(i);
+            if (templateRow != null) {
+                templateSheet.removeRow(templateRow);
+            }
+        }
+
+        //3.通过SXSSF流式写出明细数据
+        SXSSFWorkbook excel = new SXSSFWorkbook(template, ROW_WINDOW);
+        excel.setCompressTempFiles(true);
         try {
-            //基于模板文件创建一个新的Excel文件
-            XSSFWorkbook excel = new XSSFWorkbook(in);
-
-            //获取表格文件的Sheet页
-            XSSFSheet sheet = excel.getSheet("Sheet1");
-
-            //填充数据--时间
-            sheet.getRow(1).getCell(1).setCellValue("时间：" + dateBegin + "至" + dateEnd);
-
-            //获得第4行
-            XSSFRow row = sheet.getRow(3);
-            row.getCell(2).setCellValue(businessDataVO.getTurnover());
-            row.getCell(4).setCellValue(businessDataVO.getOrderCompletionRate());
-            row.getCell(6).setCellValue(businessDataVO.getNewUsers());
-
-            //获得第5行
-            row = sheet.getRow(4);
-            row.getCell(2).setCellValue(businessDataVO.getValidOrderCount());
-            row.getCell(4).setCellValue(businessDataVO.getUnitPrice());
-
-            //填充明细数据
-            for (int i = 0; i < 30; i++) {
-                LocalDate date = dateBegin.plusDays(i);
-                //查询某一天的营业数据
-                BusinessDataVO businessData = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
-
-                //获得某一行
-                row = sheet.getRow(7 + i);
-                row.getCell(1).setCellValue(date.toString());
-                row.getCell(2).setCellValue(businessData.getTurnover());
-                row.getCell(3).setCellValue(businessData.getValidOrderCount());
-                row.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-                row.getCell(5).setCellValue(businessData.getUnitPrice());
-                row.getCell(6).setCellValue(businessData.getNewUsers());
+            Sheet sheet = excel.getSheet("Sheet1");
+            for (int i = 0; i < dateList.size(); i++) {
+                BusinessDataVO businessData = businessDataList.get(i);
+                Row detailRow = sheet.createRow(DETAIL_FIRST_ROW + i);
+                setCell(detailRow, 1, detailStyles).setCellValue(dateList.get(i).toString());
+                setCell(detailRow, 2, detailStyles).setCellValue(businessData.getTurnover());
+                setCell(detailRow, 3, detailStyles).setCellValue(businessData.getValidOrderCount());
+                setCell(detailRow, 4, detailStyles).setCellValue(businessData.getOrderCompletionRate());
+                setCell(detailRow, 5, detailStyles).setCellValue(businessData.getUnitPrice());
+                setCell(detailRow, 6, detailStyles).setCellValue(businessData.getNewUsers());
+                progressListener.accept(10 + 40 * (i + 1) / dateList.size());
             }
 
-            //3. 通过输出流将Excel文件下载到客户端浏览器
-            ServletOutputStream out = response.getOutputStream();
-            excel.write(out);
+            if (withOrders) {
+                writeOrderSheet(excel, dateBegin, dateEnd, progressListener);
+            }
 
-            //关闭资源
-            out.close();
+            progressListener.accept(95);
+            excel.write(out);
+            progressListener.accept(100);
+        } finally {
+            //删除SXSSF产生的临时文件
+            excel.dispose();
             excel.close();
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+    }
+
+    /**
+     * 流式查询区间内的订单，逐行写入订单明细sheet，一个sheet写满后依次写入订单明细2、订单明细3...
+     * @param excel
+     * @param dateBegin
+     * @param dateEnd
+     * @param progressListener
+     */
+    private void writeOrderSheet(SXSSFWorkbook excel, LocalDate dateBegin, LocalDate dateEnd, IntConsumer progressListener) {
+        Sheet[] sheet = {createOrderSheet(excel, ORDER_SHEET_NAME)};
+
+        LocalDateTime beginTime = LocalDateTime.of(dateBegin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(dateEnd, LocalTime.MAX);
+        //订单总数只用于计算进度
+        Map map = new HashMap();
+        map.put("beginTime", beginTime);
+        map.put("endTime", endTime);
+        int orderCount = Math.max(orderMapper.countByMap(map), 1);
+
+        int[] rowNum = {1};
+        int[] written = {0};
+        orderMapper.streamByOrderTime(beginTime, endTime,
+                context -> {
+                    Orders orders = context.getResultObject();
+                    if (rowNum[0] == ORDER_SHEET_MAX_ROWS) {
+                        sheet[0] = createOrderSheet(excel, ORDER_SHEET_NAME + excel.getNumberOfSheets());
+                        rowNum[0] = 1;
+                    }
+                    Row row = sheet[0].createRow(rowNum[0]++);
+                    row.createCell(0).setCellValue(orders.getNumber());
+                    row.createCell(1).setCellValue(orders.getOrderTime() == null ? "" : orders.getOrderTime().toString());
+                    row.createCell(2).setCellValue(getStatusName(orders.getStatus()));
+                    row.createCell(3).setCellValue(orders.getAmount() == null ? 0.0 : orders.getAmount().doubleValue());
+                    row.createCell(4).setCellValue(orders.getConsignee());
+                    row.createCell(5).setCellValue(orders.getPhone());
+                    row.createCell(6).setCellValue(orders.getAddress());
+                    if (++written[0] % ROW_WINDOW == 0) {
+                        progressListener.accept(50 + (int) Math.min(45, 45L * written[0] / orderCount));
+                    }
+                });
+    }
+
+    /**
+     * 创建订单明细sheet并写入标题行
+     * @param excel
+     * @param name
+     * @return
+     */
+    private Sheet createOrderSheet(SXSSFWorkbook excel, String name) {
+        Sheet sheet = excel.createSheet(name);
+        Row titleRow = sheet.createRow(0);
+        for (int i = 0; i < ORDER_SHEET_TITLES.length; i++) {
+            titleRow.createCell(i).setCellValue(ORDER_SHEET_TITLES[i]);
+        }
+        return sheet;
+    }
 
+    /**
+     * 根据某一天的统计数据计算营业数据
+     * @param daily
+     * @return
+     */
+    private BusinessDataVO toBusinessData(DailyStatisticsDTO daily) {
+        Double turnover = daily == null || daily.getTurnover() == null ? 0.0 : daily.getTurnover();
+        Integer totalOrderCount = daily == null || daily.getOrderCount() == null ? 0 : daily.getOrderCount();
+        Integer validOrderCount = daily == null || daily.getValidOrderCount() == null ? 0 : daily.getValidOrderCount();
+        Integer newUsers = daily == null || daily.getNewUsers() == null ? 0 : daily.getNewUsers();
+
+        Double unitPrice = 0.0;
+        Double orderCompletionRate = 0.0;
+        if (totalOrderCount != 0 && validOrderCount != 0) {
+            //订单完成率
+            orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
+            //平均客单价
+            unitPrice = turnover / validOrderCount;
+        }
+        return BusinessDataVO.builder()
+                .turnover(turnover)
+                .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers(newUsers)
+                .build();
+    }
+
+    private Cell setCell(Row row, int column, CellStyle[] styles) {
+        Cell cell = row.createCell(column);
+        cell.setCellStyle(styles[column]);
+        return cell;
+    }
+
+    private String getStatusName(Integer status) {
+        //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+        if (status == null || status < 1 || status > ORDER_STATUS_NAMES.length) {
+            return "";
+        }
+        return ORDER_STATUS_NAMES[status - 1];
     }
 }
@@ -1,75 +1,44 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
-import com.sky.entity.Dish;
-import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
-import com.sky.mapper.DishMapper;
-import com.sky.mapper.SetmealDishMapper;
-import com.sky.mapper.SetmealMapper;
+import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.ShoppingCartMapper;
 import com.sky.service.ShoppingCartService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * 购物车保存在mysql中，默认的存储方式
+ */
 @Service
 @Slf4j
+@ConditionalOnProperty(name = "sky.shopping-cart.store", havingValue = "mysql", matchIfMissing = true)
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     @Autowired
     private ShoppingCartMapper shoppingCartMapper;
-    @Autowired
-    private DishMapper dishMapper;
-    @Autowired
-    private SetmealMapper setmealMapper;
     /**
      * 添加购物车
      * @param shoppingCartDTO
      */
     @Override
     public void addShoppingCart(ShoppingCartDTO shoppingCartDTO) {
-        //判断当前加入到购物车中的商品是否已经存在
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO,shoppingCart);
-        Long currentId = BaseContext.getCurrentId();
-        shoppingCart.setUserId(currentId);
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        //如果已经存在，只需将数量加一
-        if (list.size() > 0 && list != null) {
-            ShoppingCart cart = list.get(0);
-            cart.setNumber(cart.getNumber() + 1);
-            shoppingCartMapper.updateByNumberId(cart);
-        }else {
-            //如果不存在，需要插入一条购物车数据
-            //判断本次添加到购物车的是菜品还是套餐
-            Long dishId = shoppingCartDTO.getDishId();
-            if (dishId != null) {
-                //本次添加的是菜品
-                Dish byId = dishMapper.getById(dishId);
-                shoppingCart.setName(byId.getName());
-                shoppingCart.setImage(byId.getImage());
-                shoppingCart.setAmount(byId.getPrice());
-                shoppingCart.setNumber(1);
-                shoppingCart.setCreateTime(LocalDateTime.now());
-            } else {
-                //本次添加到购物车的是套餐
-                Long setmealId = shoppingCartDTO.getSetmealId();
-                Setmeal byId = setmealMapper.getById(setmealId);
-                shoppingCart.setName(byId.getName());
-                shoppingCart.setImage(byId.getImage());
-                shoppingCart.setAmount(byId.getPrice());
-                shoppingCart.setNumber(1);
-                shoppingCart.setCreateTime(LocalDateTime.now());
-            }
-            shoppingCart.setNumber(1);
-            shoppingCart.setCreateTime(LocalDateTime.now());
-            shoppingCartMapper.insert(shoppingCart);
+        shoppingCart.setUserId(BaseContext.getCurrentId());
+        shoppingCart.setCreateTime(LocalDateTime.now());
+        //不存在时插入，已存在时数量加一
+        if (shoppingCartMapper.insertOrIncrement(shoppingCart) == 0) {
+            throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
         }
     }
 
@@ -81,10 +50,7 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     public List<ShoppingCart> showShoppingCart() {
         //获取到当前微信用户的id
         Long currentId = BaseContext.getCurrentId();
-        ShoppingCart cart = ShoppingCart.builder()
-                .userId(currentId)
-                .build();
-        List<ShoppingCart> list = shoppingCartMapper.list(cart);
+        List<ShoppingCart> list = shoppingCartMapper.listByUserId(currentId);
         return list;
     }
 
@@ -97,8 +63,27 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         shoppingCartMapper.deleteByUser(currentId);
     }
 
+    /**
+     * 删除购物车中一个商品
+     * @param shoppingCartDTO
+     */
     @Override
     public void subShoppingCart(ShoppingCartDTO shoppingCartDTO) {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        BeanUtils.copyProperties(shoppingCartDTO,shoppingCart);
+        shoppingCart.setUserId(BaseContext.getCurrentId());
+        //数量大于1时减一，否则删除这一行
+        if (shoppingCartMapper.decrementNumber(shoppingCart) == 0) {
+            shoppingCartMapper.deleteIfLast(shoppingCart);
+        }
+    }
 
+    /**
+     * 批量添加购物车
+     * @param shoppingCartList
+     */
+    @Override
+    public void addBatch(List<ShoppingCart> shoppingCartList) {
+        shoppingCartMapper.insertBatch(shoppingCartList);
     }
 }
@@ -1,11 +1,13 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -14,6 +16,7 @@ import com.sky.vo.SetmealOverViewVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.HashMap;
@@ -31,6 +34,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private BusinessStatsService businessStatsService;
 
     /**
      * 根据时间段统计营业数据
@@ -47,20 +52,40 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
-
-        //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
-
-        map.put("status", Orders.COMPLETED);
-        //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
-
-        //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
+        Integer totalOrderCount = 0;
+        Double turnover = 0.0;
+        Integer validOrderCount = 0;
+        Integer newUsers = 0;
+
+        if (begin.toLocalTime().equals(LocalTime.MIN) && end.toLocalTime().equals(LocalTime.MAX)) {
+            //按整天统计时，已结束的日期读取每日汇总表，今天按天分组实时查询
+            Map<LocalDate, DailyStatisticsDTO> dailyMap =
+                    businessStatsService.getDailyStatistics(begin.toLocalDate(), end.toLocalDate());
+            for (DailyStatisticsDTO daily : dailyMap.values()) {
+                totalOrderCount += daily.getOrderCount() == null ? 0 : daily.getOrderCount();
+                turnover += daily.getTurnover() == null ? 0.0 : daily.getTurnover();
+                validOrderCount += daily.getValidOrderCount() == null ? 0 : daily.getValidOrderCount();
+                newUsers += daily.getNewUsers() == null ? 0 : daily.getNewUsers();
+            }
+        } else {
+            Map map = new HashMap();
+            map.put("beginTime",begin);
+            map.put("endTime",end);
+
+            //新增用户数
+            newUsers = userMapper.countByMap(map);
+
+            //查询总订单数
+            totalOrderCount = orderMapper.countByMap(map);
+
+            map.put("status", Orders.COMPLETED);
+            //营业额
+            turnover = orderMapper.sumByMap(map);
+            turnover = turnover == null? 0.0 : turnover;
+
+            //有效订单数
+            validOrderCount = orderMapper.countByMap(map);
+        }
 
         Double unitPrice = 0.0;
 
@@ -72,9 +97,6 @@ public class WorkspaceServiceImpl implements WorkspaceService {
             unitPrice = turnover / validOrderCount;
         }
 
-        //新增用户数
-        Integer newUsers = userMapper.countByMap(map);
-
         return BusinessDataVO.builder()
                 .turnover(turnover)
                 .validOrderCount(validOrderCount)
@@ -0,0 +1,30 @@
+package com.sky.task;
+
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 定时任务类，每晚对账每日运营数据汇总
+ */
+@Component
+@Slf4j
+public class BusinessStatsTask {
+
+    @Autowired
+    private BusinessStatsService businessStatsService;
+
+    /**
+     * 重新计算最近两天的汇总数据，修正增量维护可能产生的偏差
+     */
+    @Scheduled(cron = "0 30 2 * * ?")//每天凌晨2点30分执行
+    public void reconcile() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        log.info("定时对账运营数据汇总：{}至{}", yesterday.minusDays(1), yesterday);
+        businessStatsService.reconcile(yesterday.minusDays(1), yesterday);
+    }
+}
@@ -1,14 +1,18 @@
 package com.sky.task;
 
-import com.sky.context.BaseContext;
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.service.BusinessStatsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 定时任务类，定时处理订单状态
@@ -17,24 +21,31 @@ import java.util.List;
 @Slf4j
 public class OrderTask {
 
+    //每批修改的订单数，每批单独提交，避免长时间持有大量行锁
+    private static final int BATCH_SIZE = 500;
+
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private OrderTimeoutScheduler orderTimeoutScheduler;
     /**
      * 处理超时订单的方法
+     * 超时订单由OrderTimeoutScheduler按时取消，这里只兜底处理时间轮遗漏的订单（例如宕机期间到期的）
      */
-    @Scheduled(cron ="0 * * * * ?")//每分钟执行一次
+    @Scheduled(cron ="0 */5 * * * ?")//每5分钟执行一次
     public void processTimeOut() {
         log.info("定时处理超时时间：{}", LocalDateTime.now());
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-15);
-        List<Orders> orderList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT,time);
-        if (orderList != null && orderList.size() > 0) {
-            for (Orders orders : orderList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("超时未支付");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
-            }
-        }
+        //多留1分钟，避免和时间轮同时处理刚到期的订单
+        LocalDateTime time = LocalDateTime.now().plusMinutes(-OrderTimeoutScheduler.PAYMENT_TIMEOUT_MINUTES - 1);
+
+        Map map = new HashMap();
+        map.put("toStatus", Orders.CANCELLED);
+        map.put("cancelReason", "超时未支付");
+        map.put("cancelTime", LocalDateTime.now());
+        batchUpdateStatus(Orders.PENDING_PAYMENT, time, map, "超时未支付订单取消");
+        orderTimeoutScheduler.removeExpired(time.plusMinutes(OrderTimeoutScheduler.PAYMENT_TIMEOUT_MINUTES));
     }
 
     /**
@@ -44,12 +55,48 @@ public class OrderTask {
     public void processDeliveryOrder() {
         log.info("定时处理派送中订单时间：{}", LocalDateTime.now());
         LocalDateTime time = LocalDateTime.now().plusDays(-60);
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS,time);
-        if (ordersList != null && ordersList.size() > 0) {
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+
+        Map map = new HashMap();
+        map.put("toStatus", Orders.COMPLETED);
+        batchUpdateStatus(Orders.DELIVERY_IN_PROGRESS, time, map, "派送中订单完成");
+    }
+
+    /**
+     * 分批把状态为fromStatus且下单时间早于time的订单改为map中的toStatus，
+     * 每批按下单日期合并后调整运营数据，不重新汇总整个日期区间
+     * @param fromStatus
+     * @param time
+     * @param map
+     * @param taskName 日志中的任务名称
+     */
+    private void batchUpdateStatus(Integer fromStatus, LocalDateTime time, Map map, String taskName) {
+        map.put("fromStatus", fromStatus);
+
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int batches = 0;
+        List<Orders> batch;
+        do {
+            batch = orderMapper.listByStatusAndOrderTimeLT(fromStatus, time, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            map.put("ids", batch.stream().map(Orders::getId).collect(Collectors.toList()));
+            int affected = orderMapper.updateStatusByIdsAndStatus(map);
+            if (affected == batch.size()) {
+                businessStatsService.ordersStatusChanged(batch, (Integer) map.get("toStatus"));
+            } else {
+                //部分订单在查询后被其他操作修改了状态，只对这批订单涉及的日期重新汇总
+                LocalDate begin = batch.stream().map(o -> o.getOrderTime().toLocalDate()).min(LocalDate::compareTo).get();
+                LocalDate end = batch.stream().map(o -> o.getOrderTime().toLocalDate()).max(LocalDate::compareTo).get();
+                businessStatsService.reconcile(begin, end);
             }
+            total += affected;
+            batches++;
+        } while (batch.size() == BATCH_SIZE);
+
+        if (batches > 0) {
+            log.info("{}：共修改{}条，分{}批，耗时{}ms", taskName, total, batches, System.currentTimeMillis() - start);
         }
     }
 }
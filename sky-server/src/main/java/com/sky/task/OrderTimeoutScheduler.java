@@ -0,0 +1,165 @@
+package com.sky.task;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.service.BusinessStatsService;
+import com.sky.utils.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订单支付超时取消，每个订单在下单时间+15分钟时精确取消
+ * 定时任务放在进程内的时间轮中，同时写入redis有序集合（score为到期时间），重启后从redis恢复
+ */
+@Component
+@Slf4j
+public class OrderTimeoutScheduler {
+
+    //支付超时时间，单位分钟
+    public static final int PAYMENT_TIMEOUT_MINUTES = 15;
+
+    private static final String TIMEOUT_KEY = "order_payment_timeout";
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final Map<Long, TimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private TimingWheel timingWheel;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger index = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "order-timeout-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        //精度100毫秒，每层100个槽
+        timingWheel = new TimingWheel("order-timeout-wheel", 100, 100, executor);
+
+        //恢复重启前未到期的订单，已过期的会立即执行
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet().rangeWithScores(TIMEOUT_KEY, 0, -1);
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                addTimeout(Long.valueOf(tuple.getValue()), tuple.getScore().longValue());
+            }
+            log.info("从redis恢复订单超时任务{}个", tuples.size());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timingWheel.stop();
+        executor.shutdown();
+    }
+
+    /**
+     * 下单后登记超时取消任务，存在事务时在事务提交后登记
+     * @param orders
+     */
+    public void schedule(Orders orders) {
+        Long orderId = orders.getId();
+        long deadline = orders.getOrderTime().plusMinutes(PAYMENT_TIMEOUT_MINUTES)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        afterCommit(() -> {
+            stringRedisTemplate.opsForZSet().add(TIMEOUT_KEY, orderId.toString(), deadline);
+            addTimeout(orderId, deadline);
+        });
+    }
+
+    /**
+     * 订单已支付或已取消，撤销超时取消任务，存在事务时在事务提交后撤销
+     * @param orderId
+     */
+    public void cancel(Long orderId) {
+        afterCommit(() -> {
+            TimingWheel.Timeout timeout = timeouts.remove(orderId);
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            stringRedisTemplate.opsForZSet().remove(TIMEOUT_KEY, orderId.toString());
+        });
+    }
+
+    /**
+     * 清理redis中到期时间早于给定时间的记录，这些订单已由定时任务兜底处理
+     * @param time
+     */
+    public void removeExpired(LocalDateTime time) {
+        long max = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        stringRedisTemplate.opsForZSet().removeRangeByScore(TIMEOUT_KEY, 0, max);
+    }
+
+    /**
+     * 等待执行的超时任务数
+     * @return
+     */
+    public int size() {
+        return timingWheel.size();
+    }
+
+    private void addTimeout(Long orderId, long deadline) {
+        TimingWheel.Timeout timeout = timingWheel.schedule(() -> processTimeout(orderId), deadline);
+        TimingWheel.Timeout old = timeouts.put(orderId, timeout);
+        if (old != null) {
+            old.cancel();
+        }
+    }
+
+    /**
+     * 到期后取消仍未支付的订单，订单状态已变化时只清理任务
+     * 多实例同时处理同一订单时，只有条件更新成功的实例会修改运营数据
+     * @param orderId
+     */
+    private void processTimeout(Long orderId) {
+        try {
+            Orders ordersDB = orderMapper.getById(orderId);
+            if (ordersDB != null && Orders.PENDING_PAYMENT.equals(ordersDB.getStatus())) {
+                int rows = orderMapper.cancelByIdAndStatus(orderId, Orders.PENDING_PAYMENT, "超时未支付", LocalDateTime.now());
+                if (rows > 0) {
+                    businessStatsService.orderStatusChanged(ordersDB, Orders.CANCELLED);
+                    log.info("订单超时未支付，已取消：{}", orderId);
+                }
+            }
+            timeouts.remove(orderId);
+            stringRedisTemplate.opsForZSet().remove(TIMEOUT_KEY, orderId.toString());
+        } catch (Exception e) {
+            //保留redis中的记录，由定时任务兜底处理
+            log.error("订单超时取消失败：{}", orderId, e);
+        }
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+}
@@ -1,22 +1,72 @@
 package com.sky.task;
 
+import com.sky.websocket.WebSocketMetrics;
 import com.sky.websocket.WebSocketServer;
-import org.springframework.beans.factory.annotation.Autowired;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
+@Slf4j
 public class WebSocketTask {
-    @Autowired
-    private WebSocketServer webSocketServer;
+
+    //ping周期，单位毫秒
+    private static final long PING_INTERVAL_MS = 10000;
+
+    //ping帧是阻塞发送的，使用独立的线程，不占用Spring定时任务的线程
+    private ScheduledExecutorService pingScheduler;
+    private ThreadPoolExecutor pingExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger index = new AtomicInteger();
+        pingExecutor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(10000),
+                r -> {
+                    Thread thread = new Thread(r, "websocket-ping-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pingScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "websocket-ping-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pingScheduler.scheduleWithFixedDelay(this::ping, PING_INTERVAL_MS, PING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pingScheduler.shutdown();
+        pingExecutor.shutdown();
+    }
+
+    /**
+     * 定时向每个会话发送ping帧保持连接，并断开长时间没有回应的会话
+     */
+    private void ping() {
+        try {
+            WebSocketServer.pingAll(PING_INTERVAL_MS, pingExecutor);
+        } catch (Exception e) {
+            log.error("WebSocket ping失败", e);
+        }
+    }
 
     /**
-     * 通过WebSocket每隔5秒向客户端发送消息
+     * 每分钟输出一次WebSocket发送统计
      */
-    @Scheduled(cron = "0/5 * * * * ?")
-    public void sendMessageToClient() {
-        webSocketServer.sendToAllClient("这是来自服务端的消息：" + DateTimeFormatter.ofPattern("HH:mm:ss").format(LocalDateTime.now()));
+    @Scheduled(cron = "0 * * * * ?")
+    public void logMetrics() {
+        log.info("WebSocket发送统计：{}", WebSocketMetrics.snapshot());
     }
 }
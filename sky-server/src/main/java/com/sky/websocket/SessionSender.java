@@ -0,0 +1,201 @@
+package com.sky.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个WebSocket会话的发送队列
+ * 消息先放入有界队列，再通过异步发送逐条发出，同一时刻每个会话最多只有一条消息在发送，
+ * 发送方只负责入队，不会被慢速客户端阻塞；队列已满或发送失败的客户端会被断开
+ */
+@Slf4j
+public class SessionSender implements SendHandler {
+
+    private final String sid;
+    private final Session session;
+    private final WebSocketAuthenticator.Principal principal;
+    private final BlockingQueue<Message> queue;
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    //上一个ping帧还在发送时不再发送新的ping
+    private final AtomicBoolean pinging = new AtomicBoolean();
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    private volatile long sendStartNanos;
+    private volatile long lastPongTime = System.currentTimeMillis();
+
+    /**
+     * @param sid           客户端标识
+     * @param session       会话
+     * @param principal     连接的身份
+     * @param queueCapacity 发送队列容量
+     * @param sendTimeoutMs 单条消息的发送超时时间，单位毫秒
+     */
+    public SessionSender(String sid, Session session, WebSocketAuthenticator.Principal principal,
+                         int queueCapacity, long sendTimeoutMs) {
+        this.sid = sid;
+        this.session = session;
+        this.principal = principal;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        session.getAsyncRemote().setSendTimeout(sendTimeoutMs);
+        //ping等控制帧使用阻塞发送，同样限制超时时间
+        session.getUserProperties().put("org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT", sendTimeoutMs);
+    }
+
+    public String getSid() {
+        return sid;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public WebSocketAuthenticator.Principal getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * 已订阅的主题，由WebSocketServer维护
+     * @return
+     */
+    Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * 发送ping帧
+     * @param payload
+     */
+    public void ping(ByteBuffer payload) {
+        if (closed.get() || !pinging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            session.getAsyncRemote().sendPing(payload);
+        } catch (Exception e) {
+            log.warn("向客户端{}发送ping失败：{}", sid, e.getMessage());
+            close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "ping failed"));
+        } finally {
+            pinging.set(false);
+        }
+    }
+
+    /**
+     * 收到pong帧
+     */
+    public void pong() {
+        lastPongTime = System.currentTimeMillis();
+    }
+
+    public long getLastPongTime() {
+        return lastPongTime;
+    }
+
+    /**
+     * 消息入队，队列已满说明客户端消费过慢，断开该客户端
+     * @param text
+     * @return 入队成功返回true
+     */
+    public boolean send(String text) {
+        if (closed.get()) {
+            return false;
+        }
+        if (!queue.offer(new Message(text, System.nanoTime()))) {
+            WebSocketMetrics.DROPPED.increment();
+            close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "slow consumer"));
+            return false;
+        }
+        WebSocketMetrics.QUEUED.increment();
+        trySendNext();
+        return true;
+    }
+
+    /**
+     * 关闭会话并丢弃未发送的消息
+     * @param reason
+     */
+    public void close(CloseReason reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        WebSocketServer.unregister(this);
+        queue.clear();
+        if (CloseReason.CloseCodes.TRY_AGAIN_LATER.equals(reason.getCloseCode())) {
+            WebSocketMetrics.EVICTED.increment();
+            log.warn("客户端{}消费过慢，已断开连接", sid);
+        }
+        try {
+            if (session.isOpen()) {
+                session.close(reason);
+            }
+        } catch (IOException e) {
+            log.debug("关闭客户端{}连接失败", sid, e);
+        }
+    }
+
+    /**
+     * 待发送的消息数
+     * @return
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * 上一条消息发送完成后发送下一条
+     */
+    @Override
+    public void onResult(SendResult result) {
+        WebSocketMetrics.recordLatency(System.nanoTime() - sendStartNanos);
+        if (!result.isOK()) {
+            WebSocketMetrics.FAILED.increment();
+            log.warn("向客户端{}发送消息失败：{}", sid, String.valueOf(result.getException()));
+            sending.set(false);
+            close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed"));
+            return;
+        }
+        WebSocketMetrics.SENT.increment();
+        sending.set(false);
+        trySendNext();
+    }
+
+    private void trySendNext() {
+        //释放发送标记后可能有新消息入队，需要再次检查
+        while (!closed.get() && !queue.isEmpty() && sending.compareAndSet(false, true)) {
+            Message message = queue.poll();
+            if (message == null) {
+                sending.set(false);
+                continue;
+            }
+            sendStartNanos = message.enqueueNanos;
+            try {
+                session.getAsyncRemote().sendText(message.text, this);
+            } catch (Exception e) {
+                WebSocketMetrics.FAILED.increment();
+                sending.set(false);
+                close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed"));
+            }
+            return;
+        }
+    }
+
+    private static class Message {
+        private final String text;
+        private final long enqueueNanos;
+
+        Message(String text, long enqueueNanos) {
+            this.text = text;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+}
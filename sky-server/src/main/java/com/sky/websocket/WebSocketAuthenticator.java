@@ -0,0 +1,107 @@
+package com.sky.websocket;
+
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.entity.Orders;
+import com.sky.interceptor.JwtTokenVerifier;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.WebSocketRelayProperties;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket连接的身份校验和主题订阅授权
+ * 管理端可以订阅所有主题，用户端只能订阅自己的订单，未携带令牌的旧版管理端只能订阅管理端主题
+ */
+@Component
+public class WebSocketAuthenticator {
+
+    @Autowired
+    private JwtTokenVerifier jwtTokenVerifier;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private WebSocketRelayProperties webSocketRelayProperties;
+
+    /**
+     * 校验令牌，依次尝试管理端和用户端令牌
+     * @param token
+     * @return 校验失败，或要求令牌但未携带时返回null
+     */
+    public Principal authenticate(String token) {
+        if (token == null || token.isEmpty()) {
+            return webSocketRelayProperties.isRequireToken() ? null : Principal.ANONYMOUS;
+        }
+        try {
+            Claims claims = jwtTokenVerifier.verifyAdmin(token);
+            return new Principal(true, Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString()));
+        } catch (Exception e) {
+            //不是管理端令牌
+        }
+        try {
+            Claims claims = jwtTokenVerifier.verifyUser(token);
+            return new Principal(false, Long.valueOf(claims.get(JwtClaimsConstant.USER_ID).toString()));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 判断是否允许订阅主题
+     * @param principal
+     * @param topic
+     * @return
+     */
+    public boolean canSubscribe(Principal principal, String topic) {
+        if (!WebSocketTopic.isValid(topic)) {
+            return false;
+        }
+        if (principal.isAdmin()) {
+            return true;
+        }
+        if (principal.isAnonymous()) {
+            return WebSocketTopic.ADMIN.equals(topic);
+        }
+        Long orderId = WebSocketTopic.orderId(topic);
+        if (orderId == null) {
+            return false;
+        }
+        Orders orders = orderMapper.getById(orderId);
+        return orders != null && principal.getId().equals(orders.getUserId());
+    }
+
+    /**
+     * 连接的身份：管理端员工、用户端用户或未携带令牌的旧版管理端
+     */
+    public static class Principal {
+        public static final Principal ANONYMOUS = new Principal(false, null);
+
+        private final boolean admin;
+        private final Long id;
+
+        public Principal(boolean admin, Long id) {
+            this.admin = admin;
+            this.id = id;
+        }
+
+        public boolean isAdmin() {
+            return admin;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public boolean isAnonymous() {
+            return this == ANONYMOUS;
+        }
+
+        @Override
+        public String toString() {
+            if (isAnonymous()) {
+                return "anonymous";
+            }
+            return (admin ? "admin:" : "user:") + id;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.sky.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 节点间转发的WebSocket消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebSocketEnvelope {
+
+    //消息id，用于去重
+    private String id;
+
+    //发送消息的节点，节点收到自己发出的消息时忽略
+    private String origin;
+
+    //接收消息的主题，为空时发送给所有会话
+    private List<String> topics;
+
+    private String payload;
+
+}
@@ -0,0 +1,54 @@
+package com.sky.websocket;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket发送统计，延迟为消息入队到发送完成的时间
+ */
+public class WebSocketMetrics {
+
+    //已入队的消息数
+    static final LongAdder QUEUED = new LongAdder();
+    //发送成功的消息数
+    static final LongAdder SENT = new LongAdder();
+    //发送失败的消息数
+    static final LongAdder FAILED = new LongAdder();
+    //因队列已满被丢弃的消息数
+    static final LongAdder DROPPED = new LongAdder();
+    //因消费过慢被断开的客户端数
+    static final LongAdder EVICTED = new LongAdder();
+
+    private static final LongAdder LATENCY_COUNT = new LongAdder();
+    private static final LongAdder LATENCY_TOTAL_NANOS = new LongAdder();
+    private static final LongAccumulator LATENCY_MAX_NANOS = new LongAccumulator(Math::max, 0);
+
+    private WebSocketMetrics() {
+    }
+
+    static void recordLatency(long nanos) {
+        LATENCY_COUNT.increment();
+        LATENCY_TOTAL_NANOS.add(nanos);
+        LATENCY_MAX_NANOS.accumulate(nanos);
+    }
+
+    /**
+     * 获取统计数据，同时重置最大延迟
+     * @return
+     */
+    public static Map<String, Object> snapshot() {
+        long count = LATENCY_COUNT.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("sessions", WebSocketServer.getSessionCount());
+        map.put("queued", QUEUED.sum());
+        map.put("sent", SENT.sum());
+        map.put("failed", FAILED.sum());
+        map.put("dropped", DROPPED.sum());
+        map.put("evicted", EVICTED.sum());
+        map.put("avgLatencyMs", count == 0 ? 0 : LATENCY_TOTAL_NANOS.sum() / count / 1_000_000.0);
+        map.put("maxLatencyMs", LATENCY_MAX_NANOS.getThenReset() / 1_000_000.0);
+        return map;
+    }
+}
@@ -0,0 +1,156 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.WebSocketRelayProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket消息的跨节点转发
+ * 消息先发送给本节点的会话，再按批通过redis频道广播，其他节点收到后发送给各自的会话，
+ * 每条消息带有唯一id，节点按id去重，重复投递的消息只发送一次
+ */
+@Component
+@Slf4j
+public class WebSocketRelay implements MessageListener {
+
+    //当前节点的标识，每次启动都不同
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Queue<WebSocketEnvelope> pending = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    private WebSocketRelayProperties webSocketRelayProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private Cache<String, Boolean> delivered;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        delivered = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(webSocketRelayProperties.getDedupSeconds(), TimeUnit.SECONDS)
+                .build();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "websocket-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = webSocketRelayProperties.getBatchIntervalMs();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(webSocketRelayProperties.getRelayChannel()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * 向所有节点上订阅了任一主题的会话发送消息
+     *
+     * @param message
+     * @param topics
+     */
+    public void sendToTopics(String message, String... topics) {
+        publish(new WebSocketEnvelope(UUID.randomUUID().toString(), nodeId, Arrays.asList(topics), message));
+    }
+
+    /**
+     * 向所有节点的所有会话发送消息
+     *
+     * @param message
+     */
+    public void sendToAllClient(String message) {
+        publish(new WebSocketEnvelope(UUID.randomUUID().toString(), nodeId, Collections.emptyList(), message));
+    }
+
+    /**
+     * 收到其他节点转发的消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        List<WebSocketEnvelope> envelopes;
+        try {
+            envelopes = JSON.parseArray(new String(message.getBody(), StandardCharsets.UTF_8), WebSocketEnvelope.class);
+        } catch (Exception e) {
+            log.warn("WebSocket转发消息无法解析：{}", e.getMessage());
+            return;
+        }
+        for (WebSocketEnvelope envelope : envelopes) {
+            if (!nodeId.equals(envelope.getOrigin())) {
+                deliver(envelope);
+            }
+        }
+    }
+
+    private void publish(WebSocketEnvelope envelope) {
+        deliver(envelope);
+        pending.offer(envelope);
+    }
+
+    /**
+     * 发送给本节点的会话，已发送过的消息忽略
+     * @param envelope
+     */
+    private void deliver(WebSocketEnvelope envelope) {
+        if (delivered.asMap().putIfAbsent(envelope.getId(), Boolean.TRUE) != null) {
+            return;
+        }
+        List<String> topics = envelope.getTopics();
+        if (topics == null || topics.isEmpty()) {
+            WebSocketServer.sendToAllClient(envelope.getPayload());
+        } else {
+            WebSocketServer.sendToTopics(envelope.getPayload(), topics.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * 把待转发的消息按批发布到redis频道
+     */
+    private void flush() {
+        int batchMaxSize = webSocketRelayProperties.getBatchMaxSize();
+        while (!pending.isEmpty()) {
+            List<WebSocketEnvelope> batch = new ArrayList<>(Math.min(batchMaxSize, pending.size()));
+            WebSocketEnvelope envelope;
+            while (batch.size() < batchMaxSize && (envelope = pending.poll()) != null) {
+                batch.add(envelope);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                stringRedisTemplate.convertAndSend(webSocketRelayProperties.getRelayChannel(), JSON.toJSONString(batch));
+            } catch (Exception e) {
+                //转发失败时只影响其他节点，本节点的会话已收到消息
+                log.error("WebSocket消息转发失败，丢弃{}条", batch.size(), e);
+            }
+        }
+    }
+}
@@ -1,43 +1,137 @@
 package com.sky.websocket;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
+import javax.websocket.PongMessage;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Collection;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * WebSocket服务
+ * 每个会话有独立的有界发送队列，群发只负责入队，慢速客户端不会拖慢其他客户端
+ * 会话按订阅的主题建立索引，消息只发送给订阅了对应主题的会话
+ * 连接时通过参数token携带管理端或用户端的jwt令牌，例如/ws/{sid}?token=xxx，订阅主题前校验权限
+ * 未开启sky.websocket.require-token时，未携带令牌的连接按旧版管理端处理，只接收管理端主题的消息
  */
 @Component
 @ServerEndpoint("/ws/{sid}")
+@Slf4j
 public class WebSocketServer {
 
+    //每个会话最多缓存的待发送消息数
+    private static final int QUEUE_CAPACITY = 256;
+    //单条消息的发送超时时间，单位毫秒
+    private static final long SEND_TIMEOUT_MS = 5000;
+    //连续多少个ping周期没有收到pong时断开连接
+    private static final int MAX_MISSED_PONGS = 3;
+
+    private static final String ACTION_SUBSCRIBE = "subscribe";
+    private static final String ACTION_UNSUBSCRIBE = "unsubscribe";
+
+    private static WebSocketAuthenticator authenticator;
+
     //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    private static final Map<String, SessionSender> sessionMap = new ConcurrentHashMap<>();
+    //主题到会话的索引
+    private static final Map<String, Set<SessionSender>> topicMap = new ConcurrentHashMap<>();
+
+    /**
+     * 端点实例由WebSocket容器创建，通过静态字段使用Spring中的bean
+     */
+    @Autowired
+    public void setAuthenticator(WebSocketAuthenticator authenticator) {
+        WebSocketServer.authenticator = authenticator;
+    }
 
     /**
-     * 连接建立成功调用的方法
+     * 连接建立成功调用的方法，令牌无效时关闭连接
+     * 未指定topics参数时，管理端和未携带令牌的连接订阅管理端主题，用户端不订阅任何主题
      */
     @OnOpen
-    public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+    public void onOpen(Session session, @PathParam("sid") String sid) throws IOException {
+        List<String> tokens = session.getRequestParameterMap().get("token");
+        WebSocketAuthenticator.Principal principal = tokens == null || tokens.isEmpty() ? null : authenticator.authenticate(tokens.get(0));
+        if (principal == null) {
+            log.info("客户端：{}未通过身份校验，关闭连接", sid);
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "unauthorized"));
+            return;
+        }
+        log.info("客户端：{}建立连接，身份：{}", sid, principal);
+        SessionSender sender = new SessionSender(sid, session, principal, QUEUE_CAPACITY, SEND_TIMEOUT_MS);
+        SessionSender old = sessionMap.put(sid, sender);
+        if (old != null) {
+            //同一个客户端重复连接时关闭旧连接
+            old.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "replaced"));
+        }
+
+        List<String> params = session.getRequestParameterMap().get("topics");
+        if (params == null || params.isEmpty()) {
+            if (principal.isAdmin() || principal.isAnonymous()) {
+                subscribe(sender, WebSocketTopic.ADMIN);
+            }
+            return;
+        }
+        for (String param : params) {
+            for (String topic : param.split(",")) {
+                subscribe(sender, topic.trim());
+            }
+        }
     }
 
     /**
-     * 收到客户端消息后调用的方法
+     * 收到客户端消息后调用的方法，处理订阅和取消订阅
      *
      * @param message 客户端发送过来的消息
      */
     @OnMessage
     public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+        log.debug("收到来自客户端：{}的信息:{}", sid, message);
+        SessionSender sender = sessionMap.get(sid);
+        if (sender == null || !message.startsWith("{")) {
+            return;
+        }
+        try {
+            JSONObject jsonObject = JSON.parseObject(message);
+            String action = jsonObject.getString("action");
+            String topic = jsonObject.getString("topic");
+            if (ACTION_SUBSCRIBE.equals(action)) {
+                subscribe(sender, topic);
+            } else if (ACTION_UNSUBSCRIBE.equals(action)) {
+                unsubscribe(sender, topic);
+            }
+        } catch (Exception e) {
+            log.debug("客户端：{}的信息无法解析", sid);
+        }
+    }
+
+    /**
+     * 收到pong帧
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, @PathParam("sid") String sid) {
+        SessionSender sender = sessionMap.get(sid);
+        if (sender != null) {
+            sender.pong();
+        }
     }
 
     /**
@@ -46,9 +140,20 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开:{}", sid);
+        remove(sid, session);
+    }
+
+    /**
+     * 连接异常调用的方法
+     *
+     * @param sid
+     */
+    @OnError
+    public void onError(Session session, Throwable throwable, @PathParam("sid") String sid) {
+        log.warn("客户端：{}连接异常：{}", sid, throwable.getMessage());
+        remove(sid, session);
     }
 
     /**
@@ -57,15 +162,101 @@ public class WebSocketServer {
      * @param message
      */
     public static void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
+        for (SessionSender sender : sessionMap.values()) {
+            sender.send(message);
+        }
+    }
+
+    /**
+     * 发送给订阅了任一主题的会话，同时订阅多个主题的会话只收到一次
+     *
+     * @param message
+     * @param topics
+     */
+    public static void sendToTopics(String message, String... topics) {
+        if (topics.length == 1) {
+            for (SessionSender sender : topicMap.getOrDefault(topics[0], Collections.emptySet())) {
+                sender.send(message);
+            }
+            return;
+        }
+        Set<SessionSender> senders = new HashSet<>();
+        for (String topic : topics) {
+            senders.addAll(topicMap.getOrDefault(topic, Collections.emptySet()));
+        }
+        for (SessionSender sender : senders) {
+            sender.send(message);
+        }
+    }
+
+    /**
+     * 向所有会话发送ping帧，超过MAX_MISSED_PONGS个周期没有回应的会话被断开
+     * ping帧是阻塞发送的，每个会话的ping单独交给executor执行，慢速客户端只占用executor中的一个线程
+     *
+     * @param intervalMs ping周期，单位毫秒
+     * @param executor   发送ping帧的线程池
+     */
+    public static void pingAll(long intervalMs, Executor executor) {
+        long deadline = System.currentTimeMillis() - intervalMs * MAX_MISSED_PONGS;
+        for (SessionSender sender : sessionMap.values()) {
+            if (sender.getLastPongTime() < deadline) {
+                log.info("客户端：{}长时间未响应，断开连接", sender.getSid());
+                sender.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "ping timeout"));
+                continue;
+            }
             try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+                executor.execute(() -> sender.ping(ByteBuffer.allocate(0)));
+            } catch (RejectedExecutionException e) {
+                //线程池已满，本周期跳过，连续多个周期没有pong时会被断开
+                log.debug("ping任务过多，跳过客户端：{}", sender.getSid());
             }
         }
     }
 
+    /**
+     * 当前连接数
+     * @return
+     */
+    public static int getSessionCount() {
+        return sessionMap.size();
+    }
+
+    /**
+     * 会话关闭时移除，只移除仍是该会话的记录，避免误删重连后的新会话
+     * @param sender
+     */
+    static void unregister(SessionSender sender) {
+        sessionMap.remove(sender.getSid(), sender);
+        for (String topic : sender.getTopics()) {
+            unsubscribe(sender, topic);
+        }
+    }
+
+    private static void subscribe(SessionSender sender, String topic) {
+        if (!authenticator.canSubscribe(sender.getPrincipal(), topic)) {
+            log.info("客户端：{}无权订阅主题：{}", sender.getSid(), topic);
+            return;
+        }
+        sender.getTopics().add(topic);
+        topicMap.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet()).add(sender);
+    }
+
+    private static void unsubscribe(SessionSender sender, String topic) {
+        if (topic == null || !sender.getTopics().remove(topic)) {
+            return;
+        }
+        //主题下没有会话时删除该主题
+        topicMap.computeIfPresent(topic, (k, senders) -> {
+            senders.remove(sender);
+            return senders.isEmpty() ? null : senders;
+        });
+    }
+
+    private static void remove(String sid, Session session) {
+        SessionSender sender = sessionMap.get(sid);
+        if (sender != null && sender.getSession() == session) {
+            sender.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, null));
+        }
+    }
+
 }
@@ -0,0 +1,60 @@
+package com.sky.websocket;
+
+/**
+ * WebSocket订阅主题
+ * 客户端连接时通过参数topics指定，连接后可发送{"action":"subscribe","topic":"..."}订阅或取消订阅，
+ * 订阅需经过WebSocketAuthenticator授权
+ */
+public class WebSocketTopic {
+
+    //管理端，接收来单提醒和催单
+    public static final String ADMIN = "role:admin";
+
+    private static final String ORDER_PREFIX = "order:";
+
+    private WebSocketTopic() {
+    }
+
+    /**
+     * 单个订单的消息
+     * @param orderId
+     * @return
+     */
+    public static String order(Long orderId) {
+        return ORDER_PREFIX + orderId;
+    }
+
+    /**
+     * 解析订单主题中的订单id
+     * @param topic
+     * @return 不是订单主题时返回null
+     */
+    public static Long orderId(String topic) {
+        return isIdTopic(topic, ORDER_PREFIX) ? Long.valueOf(topic.substring(ORDER_PREFIX.length())) : null;
+    }
+
+    /**
+     * 只允许订阅已知前缀的主题
+     * @param topic
+     * @return
+     */
+    public static boolean isValid(String topic) {
+        return ADMIN.equals(topic) || isIdTopic(topic, ORDER_PREFIX);
+    }
+
+    private static boolean isIdTopic(String topic, String prefix) {
+        if (topic == null || !topic.startsWith(prefix) || topic.length() == prefix.length()) {
+            return false;
+        }
+        //超过18位可能超出Long的范围
+        if (topic.length() - prefix.length() > 18) {
+            return false;
+        }
+        for (int i = prefix.length(); i < topic.length(); i++) {
+            if (!Character.isDigit(topic.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
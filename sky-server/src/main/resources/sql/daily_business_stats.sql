@@ -0,0 +1,59 @@
+-- 每日运营数据汇总表，由订单状态变化增量维护，每晚与orders、user表对账
+create table if not exists daily_business_stats
+(
+    stats_date                 date           not null comment '统计日期',
+    turnover                   decimal(12, 2) not null default 0 comment '营业额',
+    total_orders               int            not null default 0 comment '订单总数',
+    valid_orders               int            not null default 0 comment '有效订单数',
+    new_users                  int            not null default 0 comment '新增用户数',
+    pending_payment_count      int            not null default 0 comment '待付款',
+    to_be_confirmed_count      int            not null default 0 comment '待接单',
+    confirmed_count            int            not null default 0 comment '已接单',
+    delivery_in_progress_count int            not null default 0 comment '派送中',
+    completed_count            int            not null default 0 comment '已完成',
+    cancelled_count            int            not null default 0 comment '已取消',
+    update_time                datetime       null comment '更新时间',
+    primary key (stats_date)
+) comment '每日运营数据汇总';
+
+-- 对账和按天分组统计依赖的索引
+create index idx_orders_order_time on orders (order_time);
+create index idx_user_create_time on user (create_time);
+
+-- 回填历史数据：汇总记录只在已存在时累加增量，缺失的日期由程序按需重新计算，
+-- 这里一次性生成上线前所有日期的记录，避免历史报表逐日触发重新计算
+insert into daily_business_stats (stats_date, turnover, total_orders, valid_orders,
+                                  pending_payment_count, to_be_confirmed_count, confirmed_count,
+                                  delivery_in_progress_count, completed_count, cancelled_count, update_time)
+select date(order_time),
+       ifnull(sum(case when status = 5 then amount else 0 end), 0),
+       count(id),
+       sum(case when status = 5 then 1 else 0 end),
+       sum(case when status = 1 then 1 else 0 end),
+       sum(case when status = 2 then 1 else 0 end),
+       sum(case when status = 3 then 1 else 0 end),
+       sum(case when status = 4 then 1 else 0 end),
+       sum(case when status = 5 then 1 else 0 end),
+       sum(case when status = 6 then 1 else 0 end),
+       now()
+from orders
+group by date(order_time)
+on duplicate key update
+    turnover                   = values(turnover),
+    total_orders               = values(total_orders),
+    valid_orders               = values(valid_orders),
+    pending_payment_count      = values(pending_payment_count),
+    to_be_confirmed_count      = values(to_be_confirmed_count),
+    confirmed_count            = values(confirmed_count),
+    delivery_in_progress_count = values(delivery_in_progress_count),
+    completed_count            = values(completed_count),
+    cancelled_count            = values(cancelled_count),
+    update_time                = values(update_time);
+
+insert into daily_business_stats (stats_date, new_users, update_time)
+select date(create_time), count(id), now()
+from user
+group by date(create_time)
+on duplicate key update
+    new_users   = values(new_users),
+    update_time = values(update_time);
@@ -0,0 +1,3 @@
+-- 订单游标分页依赖的索引，InnoDB二级索引自带主键id，
+-- order by order_time desc, id desc 可以直接使用 (user_id, order_time) 和 idx_orders_order_time
+create index idx_orders_user_time on orders (user_id, order_time);
@@ -0,0 +1,10 @@
+-- 订单号由雪花算法生成，全局唯一，支付回调按订单号查询订单
+-- 旧数据中订单号重复的，保留id最小的一条，其余订单号追加 -id 后缀，避免唯一索引创建失败
+update orders o
+    join (select number, min(id) id
+          from orders
+          group by number
+          having count(*) > 1) d on o.number = d.number and o.id > d.id
+set o.number = concat(o.number, '-', o.id);
+
+create unique index uk_orders_number on orders (number);
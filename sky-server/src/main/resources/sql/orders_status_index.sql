@@ -0,0 +1,2 @@
+-- 订单定时任务按状态和下单时间批量修改，避免每次扫描全表
+create index idx_orders_status_time on orders (status, order_time);
@@ -0,0 +1,18 @@
+-- 购物车同一用户同一商品只保留一行，加入购物车使用 insert ... on duplicate key update
+-- dish_id、setmeal_id、dish_flavor 可能为null，null不参与唯一约束，因此使用生成列
+alter table shopping_cart
+    add column item_key varchar(100) as (concat(ifnull(dish_id, ''), '-', ifnull(setmeal_id, ''), '-', ifnull(dish_flavor, ''))) stored;
+
+-- 合并已有的重复数据
+update shopping_cart sc
+    join (select min(id) id, sum(number) total
+          from shopping_cart
+          group by user_id, item_key
+          having count(*) > 1) d on sc.id = d.id
+set sc.number = d.total;
+
+delete sc
+from shopping_cart sc
+         join shopping_cart k on sc.user_id = k.user_id and sc.item_key = k.item_key and sc.id > k.id;
+
+alter table shopping_cart add unique key uk_shopping_cart_user_item (user_id, item_key);
@@ -0,0 +1,212 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TwoLevelCacheTest {
+
+    private static final String NAME = "dishSnapshot";
+
+    //用map模拟redis中的数据
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+    private final Map<String, String> stringRedis = new ConcurrentHashMap<>();
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache;
+    private CacheInvalidationPublisher publisher;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        RedisTemplate redisTemplate = mock(RedisTemplate.class);
+        ValueOperations valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(any())).thenAnswer(invocation -> redis.get(invocation.getArgument(0)));
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(any(), any());
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(any(), any(), any(Duration.class));
+        when(redisTemplate.delete(anyString())).thenAnswer(invocation -> redis.remove(invocation.<String>getArgument(0)) != null);
+
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> stringOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(stringOperations);
+        when(stringOperations.get(anyString())).thenAnswer(invocation -> stringRedis.get(invocation.<String>getArgument(0)));
+        when(stringOperations.increment(anyString())).thenAnswer(invocation ->
+                increment(invocation.getArgument(0), 1));
+        when(stringOperations.increment(anyString(), anyLong())).thenAnswer(invocation ->
+                increment(invocation.getArgument(0), invocation.getArgument(1)));
+        when(stringOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+                stringRedis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+
+        localCache = Caffeine.newBuilder().build();
+        publisher = mock(CacheInvalidationPublisher.class);
+        cache = new TwoLevelCache(NAME, localCache, redisTemplate, stringRedisTemplate, Duration.ofMinutes(30), publisher);
+    }
+
+    /**
+     * 未命中时加载一次并写入两级缓存，之后从本地缓存读取
+     */
+    @Test
+    public void testLoadOnceThenHitLocal() {
+        AtomicInteger loads = new AtomicInteger();
+        Callable<String> loader = () -> {
+            loads.incrementAndGet();
+            return "value";
+        };
+
+        assertEquals("value", cache.get(1L, loader));
+        assertEquals("value", cache.get(1L, loader));
+
+        assertEquals(1, loads.get());
+        assertEquals("value", localCache.getIfPresent(1L));
+        assertEquals("value", ((CacheValue) redis.get(NAME + "::v0::1")).getValue());
+    }
+
+    /**
+     * 本地缓存未命中、redis命中时回填本地缓存，不调用加载方法
+     */
+    @Test
+    public void testRedisHitFillsLocal() {
+        redis.put(NAME + "::v0::1", new CacheValue("fromRedis", 0, 0));
+
+        assertEquals("fromRedis", cache.get(1L, () -> fail("不应查询数据库")));
+        assertEquals("fromRedis", localCache.getIfPresent(1L));
+    }
+
+    /**
+     * 同一个key并发加载时只有一个线程调用加载方法，其他线程等待它的结果
+     */
+    @Test
+    public void testConcurrentLoadsOfSameKeyLoadOnce() throws Exception {
+        int threads = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<Object> first = executor.submit(() -> cache.get(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "value";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            Future<?>[] others = new Future<?>[threads - 1];
+            for (int i = 0; i < others.length; i++) {
+                others[i] = executor.submit(() -> cache.get(1L, () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                }));
+            }
+            //等待其他线程进入等待状态后再完成加载
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("value", first.get(5, TimeUnit.SECONDS));
+            for (Future<?> other : others) {
+                assertEquals("value", other.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 加载失败时抛出异常且不缓存失败结果，之后可以重新加载
+     */
+    @Test
+    public void testLoadFailureIsNotCached() {
+        assertThrows(RuntimeException.class, () -> cache.get(1L, () -> {
+            throw new IllegalStateException("db down");
+        }));
+
+        assertEquals("value", cache.get(1L, () -> "value"));
+    }
+
+    /**
+     * 清空缓存时递增版本号并通知其他节点，旧版本的数据不再被读取
+     */
+    @Test
+    public void testClearBumpsGeneration() {
+        cache.put(1L, "old");
+
+        cache.clear();
+
+        assertEquals("1", stringRedis.get(NAME + "::generation"));
+        assertNull(localCache.getIfPresent(1L));
+        assertNull(cache.get(1L));
+        assertEquals("new", cache.get(1L, () -> "new"));
+        assertTrue(redis.containsKey(NAME + "::v1::1"));
+        verify(publisher).publish(NAME, null, 1L);
+    }
+
+    /**
+     * redis中的版本号丢失时，清空缓存后的版本号仍大于本地版本号
+     */
+    @Test
+    public void testClearAfterGenerationLost() {
+        cache.clear();
+        cache.clear();
+        stringRedis.remove(NAME + "::generation");
+
+        cache.clear();
+
+        assertEquals("3", stringRedis.get(NAME + "::generation"));
+        verify(publisher).publish(NAME, null, 3L);
+    }
+
+    /**
+     * 收到较小的版本号时不回退，也不清空本地缓存
+     */
+    @Test
+    public void testGenerationNeverGoesBackwards() {
+        cache.onGeneration(2);
+        cache.put(1L, "value");
+
+        cache.onGeneration(1);
+
+        assertEquals("value", localCache.getIfPresent(1L));
+        assertTrue(redis.containsKey(NAME + "::v2::1"));
+        assertEquals("value", cache.get(1L).get());
+    }
+
+    /**
+     * 删除key时清理两级缓存并通知其他节点
+     */
+    @Test
+    public void testEvict() {
+        cache.put(1L, "value");
+
+        cache.evict(1L);
+
+        assertNull(localCache.getIfPresent(1L));
+        assertFalse(redis.containsKey(NAME + "::v0::1"));
+        verify(publisher).publish(NAME, 1L, null);
+    }
+
+    private Long increment(String key, long delta) {
+        return Long.valueOf(stringRedis.merge(key, String.valueOf(delta),
+                (old, d) -> String.valueOf(Long.parseLong(old) + Long.parseLong(d))));
+    }
+}
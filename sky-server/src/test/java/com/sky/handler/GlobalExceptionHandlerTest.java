@@ -0,0 +1,75 @@
+package com.sky.handler;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.OrderBusinessException;
+import com.sky.result.Result;
+import com.sky.utils.OrderCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GlobalExceptionHandlerTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new CursorController())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    /**
+     * 无效的分页游标返回400，而不是500
+     */
+    @Test
+    public void testInvalidCursorReturns400() throws Exception {
+        mockMvc.perform(get("/cursor").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.msg").value(MessageConstant.ORDER_CURSOR_INVALID));
+    }
+
+    @Test
+    public void testValidCursor() throws Exception {
+        String cursor = OrderCursor.encode(LocalDateTime.of(2025, 3, 1, 12, 30), 1024L);
+        mockMvc.perform(get("/cursor").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(1))
+                .andExpect(jsonPath("$.data").value(1024));
+    }
+
+    /**
+     * 其他业务异常仍按原来的方式返回
+     */
+    @Test
+    public void testBusinessExceptionUnchanged() throws Exception {
+        mockMvc.perform(get("/business"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.msg").value(MessageConstant.ORDER_NOT_FOUND));
+    }
+
+    @RestController
+    static class CursorController {
+
+        @GetMapping("/cursor")
+        public Result<Long> cursor(String cursor) {
+            return Result.success(OrderCursor.decode(cursor).getId());
+        }
+
+        @GetMapping("/business")
+        public Result business() {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+    }
+}